@@ -0,0 +1,298 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * A bounding volume hierarchy is a binary tree of boxes built from
+ * the bounding boxes of a list of game components. Each node encloses
+ * the boxes of its children, so a ray segment that misses a node
+ * cannot hit any component below it and the whole branch is skipped
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class BoundingVolumeHierarchy implements SpatialIndex {
+
+	/**
+	 * Amount added around each box, the intersection methods of
+	 * the components accept points slightly outside their box
+	 */
+	private final double MARGIN = 2;
+
+	//bounds of each node
+	private double[] minX;
+	private double[] minY;
+	private double[] maxX;
+	private double[] maxY;
+
+	//structure of the tree
+	private int[] left;
+	private int[] right;
+	private int[] parent;
+	/**
+	 * item[node] is the index of the component of a leaf, -1 for inner nodes
+	 */
+	private int[] item;
+	/**
+	 * leafOf[i] is the leaf node of the ith component
+	 */
+	private int[] leafOf;
+	private int root = -1;
+	private int nodeCount;
+
+
+	/**
+	 * Builds the hierarchy over the bounding boxes of the given components
+	 * @param boxes The bounding boxes, null boxes are never culled
+	 */
+	public BoundingVolumeHierarchy(Rectangle[] boxes) {
+
+		int n = boxes.length;
+		int capacity = Math.max(1, 2*n-1);
+
+		minX = new double[capacity];
+		minY = new double[capacity];
+		maxX = new double[capacity];
+		maxY = new double[capacity];
+		left = new int[capacity];
+		right = new int[capacity];
+		parent = new int[capacity];
+		item = new int[capacity];
+		leafOf = new int[n];
+
+		if (n == 0)
+			return;
+
+		//centers of the boxes, used to split the components in two halves
+		double[] cx = new double[n];
+		double[] cy = new double[n];
+		int[] order = new int[n];
+
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+			if (boxes[i] != null) {
+				cx[i] = boxes[i].getCenterX();
+				cy[i] = boxes[i].getCenterY();
+			}
+		}
+
+		root = build(boxes, order, 0, n, cx, cy);
+		parent[root] = -1;
+	}
+	/**
+	 * Recursively builds the subtree of the components order[from] to order[to-1]
+	 * @return The node at the top of the subtree
+	 */
+	private int build(Rectangle[] boxes, int[] order, int from, int to, double[] cx, double[] cy) {
+
+		int node = nodeCount++;
+
+		if (to-from == 1) {
+			item[node] = order[from];
+			left[node] = -1;
+			right[node] = -1;
+			leafOf[order[from]] = node;
+			setLeafBox(node, boxes[order[from]]);
+			return node;
+		}
+
+		item[node] = -1;
+
+		//split along the axis in which the centers are the most spread out
+		double loX = Double.MAX_VALUE, hiX = -Double.MAX_VALUE;
+		double loY = Double.MAX_VALUE, hiY = -Double.MAX_VALUE;
+
+		for (int i = from; i < to; i++) {
+			loX = Math.min(loX, cx[order[i]]);
+			hiX = Math.max(hiX, cx[order[i]]);
+			loY = Math.min(loY, cy[order[i]]);
+			hiY = Math.max(hiY, cy[order[i]]);
+		}
+
+		sort(order, from, to, (hiX-loX >= hiY-loY) ? cx : cy);
+
+		int mid = (from+to)/2;
+		left[node] = build(boxes, order, from, mid, cx, cy);
+		right[node] = build(boxes, order, mid, to, cx, cy);
+		parent[left[node]] = node;
+		parent[right[node]] = node;
+		enclose(node);
+
+		return node;
+	}
+	/**
+	 * Sorts order[from] to order[to-1] by increasing key
+	 */
+	private void sort(int[] order, int from, int to, final double[] key) {
+
+		Integer[] tmp = new Integer[to-from];
+		for (int i = from; i < to; i++)
+			tmp[i-from] = order[i];
+
+		Arrays.sort(tmp, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Double.compare(key[a], key[b]);
+			}
+		});
+
+		for (int i = from; i < to; i++)
+			order[i] = tmp[i-from];
+	}
+	/**
+	 * Sets the bounds of a leaf to the given box, with a margin
+	 */
+	private void setLeafBox(int node, Rectangle box) {
+		if (box == null) {
+			minX[node] = -Double.MAX_VALUE;
+			minY[node] = -Double.MAX_VALUE;
+			maxX[node] = Double.MAX_VALUE;
+			maxY[node] = Double.MAX_VALUE;
+		}
+		else {
+			minX[node] = box.getMinX()-MARGIN;
+			minY[node] = box.getMinY()-MARGIN;
+			maxX[node] = box.getMaxX()+MARGIN;
+			maxY[node] = box.getMaxY()+MARGIN;
+		}
+	}
+	/**
+	 * Sets the bounds of an inner node to the union of its children
+	 * @return True if the bounds of the node changed
+	 */
+	private boolean enclose(int node) {
+		int a = left[node];
+		int b = right[node];
+
+		double x1 = Math.min(minX[a], minX[b]);
+		double y1 = Math.min(minY[a], minY[b]);
+		double x2 = Math.max(maxX[a], maxX[b]);
+		double y2 = Math.max(maxY[a], maxY[b]);
+
+		if (x1 == minX[node] && y1 == minY[node] && x2 == maxX[node] && y2 == maxY[node])
+			return false;
+
+		minX[node] = x1;
+		minY[node] = y1;
+		maxX[node] = x2;
+		maxY[node] = y2;
+		return true;
+	}
+	/**
+	 * Updates the box of one component and the boxes of the nodes above it,
+	 * stops as soon as a node does not change
+	 * @param index Index of the component that changed
+	 * @param box New bounding box of the component
+	 */
+	@Override
+	public void refit(int index, Rectangle box) {
+		int node = leafOf[index];
+		setLeafBox(node, box);
+
+		for (node = parent[node]; node >= 0; node = parent[node]) {
+			if (!enclose(node))
+				break;
+		}
+	}
+	/**
+	 * The hierarchy does not order its components along the segment,
+	 * they are all given to the visitor as a single group, in increasing order
+	 */
+	@Override
+	public void walk(double x1, double y1, double x2, double y2, Workspace workspace, Visitor visitor) {
+		if (root < 0)
+			return;
+
+		int count = query(root, x1, y1, x2-x1, y2-y1, workspace.items, 0);
+		Arrays.sort(workspace.items, 0, count);
+		
+		if (count > 0)
+			visitor.visit(workspace.items, count, 1);
+	}
+	/**
+	 * Finds the components of a subtree whose box is crossed by the segment
+	 * @return The number of indices in result
+	 */
+	private int query(int node, double x1, double y1, double dx, double dy, int[] result, int count) {
+
+		if (!crosses(node, x1, y1, dx, dy))
+			return count;
+
+		if (item[node] >= 0) {
+			result[count] = item[node];
+			return count+1;
+		}
+
+		count = query(left[node], x1, y1, dx, dy, result, count);
+		return query(right[node], x1, y1, dx, dy, result, count);
+	}
+	/**
+	 * Finds the components whose box overlaps an area. The boxes are enlarged by
+	 * the margin, so the caller still has to test the components it gets
+	 * @param area The area, in the coordinates of the boxes
+	 * @param result Receives the indices of the components, in increasing order,
+	 * at least as big as the number of components
+	 * @return The number of indices in result
+	 */
+	public int find(Rectangle area, int[] result) {
+		if (root < 0)
+			return 0;
+
+		int count = find(root, area.getMinX(), area.getMinY(), area.getMaxX(), area.getMaxY(), result, 0);
+		Arrays.sort(result, 0, count);
+		return count;
+	}
+	/**
+	 * Finds the components of a subtree whose box overlaps the area from (x1, y1) to (x2, y2)
+	 * @return The number of indices in result
+	 */
+	private int find(int node, double x1, double y1, double x2, double y2, int[] result, int count) {
+
+		if (maxX[node] < x1 || minX[node] > x2 || maxY[node] < y1 || minY[node] > y2)
+			return count;
+
+		if (item[node] >= 0) {
+			result[count] = item[node];
+			return count+1;
+		}
+
+		count = find(left[node], x1, y1, x2, y2, result, count);
+		return find(right[node], x1, y1, x2, y2, result, count);
+	}
+	/**
+	 * Slab test: checks if the segment from (x1, y1) to (x1+dx, y1+dy) crosses the box of a node
+	 */
+	private boolean crosses(int node, double x1, double y1, double dx, double dy) {
+		double tMin = 0;
+		double tMax = 1;
+
+		if (dx == 0) {
+			if (x1 < minX[node] || x1 > maxX[node])
+				return false;
+		}
+		else {
+			double t1 = (minX[node]-x1)/dx;
+			double t2 = (maxX[node]-x1)/dx;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		if (dy == 0) {
+			if (y1 < minY[node] || y1 > maxY[node])
+				return false;
+		}
+		else {
+			double t1 = (minY[node]-y1)/dy;
+			double t2 = (maxY[node]-y1)/dy;
+			tMin = Math.max(tMin, Math.min(t1, t2));
+			tMax = Math.min(tMax, Math.max(t1, t2));
+		}
+
+		return tMin <= tMax;
+	}
+}
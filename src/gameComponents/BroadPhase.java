@@ -0,0 +1,129 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * The broad phase of the collision checks between game components.
+ * It keeps a bounding volume hierarchy over the boxes of a list of
+ * components and finds the few components whose box is near an area,
+ * so a component being dragged or placed is only compared with its
+ * neighbours instead of with every component of the plane.
+ * The hierarchy follows the list: it is refitted when a box changes
+ * and rebuilt when components are added or removed, or when it has been
+ * refitted so many times that its branches may no longer be compact
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class BroadPhase {
+
+	/**
+	 * The components checked, the list is read, never modified
+	 */
+	private final List<GameComponent> components;
+	/**
+	 * The components in the hierarchy and the revision of their box when it was last refitted
+	 */
+	private GameComponent[] indexed;
+	private int[] revisions;
+	private BoundingVolumeHierarchy index;
+	/**
+	 * Number of boxes refitted since the hierarchy was built
+	 */
+	private int refits;
+	/**
+	 * Receives the indices found by a query
+	 */
+	private int[] found;
+
+
+	/**
+	 * @param components The components to check, can be changed between two queries
+	 */
+	public BroadPhase(List<GameComponent> components) {
+		this.components = components;
+	}
+
+	public List<GameComponent> getComponents() {
+		return components;
+	}
+	/**
+	 * Finds the components whose box can overlap an area. The boxes are slightly
+	 * enlarged, so the caller tests the components it gets with their exact box.
+	 * The hierarchy is searched as it was last brought up to date, the components
+	 * moved since are found where they were: a caller updates it once before its
+	 * queries, and refits the components it moves between them
+	 * @param area An area of the plane
+	 * @return The indices of the components in the list, in increasing order
+	 */
+	public int[] find(Rectangle area) {
+		if (index == null)
+			update();
+		
+		int count = index.find(area, found);
+		return Arrays.copyOf(found, count);
+	}
+	/**
+	 * Brings the box of one component up to date, without going through the list
+	 * @param i The index of the component in the list
+	 */
+	public void refit(int i) {
+		
+		//components were added or removed, the hierarchy is built again
+		if (index == null || indexed.length != components.size()) {
+			update();
+			return;
+		}
+		
+		refitLeaf(i);
+	}
+	/**
+	 * Brings the hierarchy up to date with the list of components
+	 */
+	public void update() {
+
+		boolean sameList = (index != null && indexed.length == components.size());
+
+		if (sameList) {
+			for (int i = 0; i < indexed.length; i++) {
+
+				refitLeaf(i);
+			}
+
+			//a refitted leaf stays where it was built, after many moves the tree is built again
+			if (refits <= indexed.length)
+				return;
+		}
+
+		indexed = components.toArray(new GameComponent[components.size()]);
+		revisions = new int[indexed.length];
+		found = new int[indexed.length];
+		Rectangle[] boxes = new Rectangle[indexed.length];
+
+		for (int i = 0; i < indexed.length; i++) {
+			boxes[i] = indexed[i].getBox();
+			revisions[i] = indexed[i].getBoxRevision();
+		}
+
+		index = new BoundingVolumeHierarchy(boxes);
+		refits = 0;
+	}
+	/**
+	 * Refits the leaf of a component if its box changed
+	 */
+	private void refitLeaf(int i) {
+		
+		//a component replaced by another one is refitted like a component that moved
+		if (indexed[i] != components.get(i) || indexed[i].getBoxRevision() != revisions[i]) {	//checking for a reference match
+			indexed[i] = components.get(i);
+			index.refit(i, indexed[i].getBox());
+			revisions[i] = indexed[i].getBoxRevision();
+			refits++;
+		}
+	}
+}
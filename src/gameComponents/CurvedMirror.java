@@ -2,7 +2,7 @@ package gameComponents;
 import java.awt.*;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -144,6 +144,7 @@ public class CurvedMirror extends Mirror {
 
 	public void setConvergent(boolean convergent) {
 		this.convergent = convergent;
+		changed();
 	}
 
 	public double getArcAngle() {
@@ -213,144 +214,54 @@ public class CurvedMirror extends Mirror {
 	}
 	
 	/**
-	 * The argument p1 is not used here, but is necessary to allow this method to override the one in the superclass
-	 * @see gameComponents.Mirror#setNormalLine(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
+	 * A convergent mirror reflects the rays that hit it from inside its circle,
+	 * a divergent mirror the rays that hit it from outside
+	 * @see gameComponents.Mirror#checkOrientation(gameComponents.RaySegment, double)
 	 */
 	@Override
-	public void setNormalLine(Point2D.Double intersection, Point2D.Double p1) {
-		setNormalLine(new LineEq(h, k, intersection.getX(), intersection.getY()));
+	public boolean checkOrientation(RaySegment segment, double t) {
+
+		//a ray hitting the circle from inside travels away from the center
+		double outward = segment.getDirectionX()*(segment.getX(t)-h) + segment.getDirectionY()*(segment.getY(t)-k);
+
+		if (convergent) 
+			return outward > 0;
+		else return outward < 0;
 	}
 	/**
-	 * 
-	 * @see gameComponents.Mirror#checkOrientation(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * The normal of the mirror goes through the center of its circle
+	 * @see gameComponents.Mirror#bend(gameComponents.RaySegment, double, gameComponents.RaySegment)
 	 */
 	@Override
-	public boolean checkOrientation(Point2D.Double source, Point2D.Double intersec, LineEq segment) {
+	public void bend(RaySegment segment, double t, RaySegment result) {
+		double nx = segment.getX(t)-h;
+		double ny = segment.getY(t)-k;
+		double length = Math.hypot(nx, ny);
 
-		if (source.distance(getPosition()) > radius+2) {	//the +2 accounts for some potential imprecision
-			
-			//if the source of the ray is not within the radius of this curved mirror
-			//then the ray hits a reflective surface if the mirror is convergent 
-			//and if the intersection is not the closest solution...
-			if (convergent && !closestSol(source, intersec, segment)) 
-				return true;
-			
-			//...or if it is divergent and the intersection is the closest solution
-			else if (!convergent && closestSol(source, intersec, segment)) 
-				return true;
-			
-			else return false;
-		}
-		else {	
-			//if the source of the ray segment is within the radius of this curved mirror
-			//then the ray will inevitably hit a reflective surface
-			if (convergent) 
-				return true;
-			else return false;
-		}
-	}
-	/**
-	 * Tells if the intersection point of an incident ray with 
-	 * this curved mirror is the closest of two possible solutions 
-	 * @param source Source end point of the incident ray segment
-	 * @param intersec Intersection point to check
-	 * @param segment Incident ray segment
-	 * @return True if intersec is the closest solution, false otherwise
-	 */
-	private boolean closestSol(Point2D.Double source, Point2D.Double intersec, LineEq segment) {
-		
-		ArrayList<Point2D.Double> solutions = new ArrayList<>();
-			
-		if (infiniteSlope((source.getY()-intersec.getY())/(source.getX()-intersec.getX()))) {
-				
-			//if the line from source to intersec is vertical, use circSolsX to compute the intersections
-			double[] c = circSolsX(source.getX(), radius, h, k);
-			solutions.add(new Point2D.Double(source.getX(), c[0]));
-			solutions.add(new Point2D.Double(source.getX(), c[1]));
-		}
-		else solutions = circSolsGeneral(segment, radius, h, k);	
-
-		//determine which solution of the intersection of the line with this curved mirror 
-		//is closest to the current intersection
-		if (intersec.distance(solutions.get(0)) < intersec.distance(solutions.get(1)) ) {
-			
-			if (source.distance(intersec) <= source.distance(solutions.get(1))) 
-				return true;
-			else return false;
-		}
-		else {
-			
-			if (source.distance(intersec) <= source.distance(solutions.get(0)))
-				return true;
-			else return false;
-		}
+		reflect(segment, t, nx/length, ny/length, result);
 	}
 	/**
 	 * 
-	 * @see gameComponents.Mirror#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.Mirror#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
-			
-			Point2D.Double inter;	//the intersection point	
-			double interx, intery;	//the x and y coordinates of the intersection point
-			
-			if (infiniteSlope(segment.getSlope())) {
-				
-				interx = p1.getX();
-				
-				double[] circleSols = circSolsX(p1.getX(), radius, h, k);
-				double closeY = circleSols[0];
-				double farY = circleSols[1];
-				
-				if (p1.distance(p1.getX(), farY) < p1.distance(p1.getX(), closeY)) {
-					double temp = closeY;
-					closeY = farY;
-					farY = temp;
-				}
-				
-				if (onSurface(interx, closeY) && sameQuadrant(p1, p2, new Point2D.Double(interx, closeY)))
-					intery = closeY;
-				else
-					intery = farY;
-			}
-			else {	
-				
-				ArrayList<Point2D.Double> solutions = circSolsGeneral(segment, radius, h, k);
+	public double intersection(RaySegment segment) {
+
+		double t = circleIntersection(segment, radius, h, k);
 
-				if (solutions == null)
-					return null;
-					
-				Point2D.Double closeSol = solutions.get(0);
-				Point2D.Double farSol = solutions.get(1);
-				double closeDis = p1.distance(closeSol);
-				double farDis = p1.distance(farSol);
-					
-				if (closeDis > farDis) {
-					Point2D.Double temp = (Point2D.Double)closeSol.clone();	
-					closeSol = (Point2D.Double)farSol.clone();
-					farSol = temp;		
-				}
+		if (Double.isNaN(t))
+			return RaySegment.MISS;
 
-				if (onSurface(closeSol.getX(), closeSol.getY()) && !approx(closeSol, p1) && sameQuadrant(p1, p2, closeSol)) {
-					interx = closeSol.getX();
-					intery = closeSol.getY();
-				}
-				else {
-					interx = farSol.getX();
-					intery = farSol.getY();
-				}
-				
-			}
+		//the closest solution that is on the surface of this curved mirror
+		if (segment.contains(t) && onSurface(segment.getX(t), segment.getY(t)))
+			return t;
 
-			inter = new Point2D.Double(interx, intery);
+		t = otherCircleIntersection(segment, h, k, t);
 
-			//the intersection point is valid if it is on the surface 
-			//of this curved mirror and if it is not equal to the source point 
-			//of the ray segment intersecting with the mirror
-			if (onSurface(interx, intery) && !approx(p1, inter))	
-				return inter;
-			else return null;
+		if (segment.contains(t) && onSurface(segment.getX(t), segment.getY(t)))
+			return t;
+
+		return RaySegment.MISS;
 	}
 	/**
 	 * Checks if a given point is on the curved mirror or not
@@ -419,6 +330,36 @@ public class CurvedMirror extends Mirror {
 		else
 			g.drawArc((int)(h-radius+dis), (int)(k-radius+dis), (int)(radius-dis)*dis, (int)(radius-dis)*dis, (int)arcAngle, (int)arcLength);
 	}
+	/**
+	 * 
+	 * @see gameComponents.Mirror#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putInt(radius);
+		out.putDouble(h);
+		out.putDouble(k);
+		out.put((byte)(convergent ? 1 : 0));
+		out.putDouble(arcAngle);
+		out.putDouble(arcAngleb);
+		out.putDouble(arcLength);
+	}
+	/**
+	 * 
+	 * @see gameComponents.Mirror#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		radius = in.getInt();
+		h = in.getDouble();
+		k = in.getDouble();
+		convergent = in.get() != 0;
+		arcAngle = in.getDouble();
+		arcAngleb = in.getDouble();
+		arcLength = in.getDouble();
+	}
 	/**
 	 * 
 	 * @see gameComponents.Mirror#getType()
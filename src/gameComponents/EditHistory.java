@@ -0,0 +1,401 @@
+package gameComponents;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * The undo and redo history of a list of components.
+ * Each call to commit() ends an edit: the list is compared with the one committed last,
+ * through the references and the edit revisions of the components, and the differences become
+ * one step of the history. A step only holds the components that were added or removed,
+ * which are shared with the list rather than copied, and, for each component that changed,
+ * its parameters before and after the edit, as written in a scene file. Undoing or redoing
+ * a step applies these differences, so its cost depends on the size of the edit, not of the list.
+ * The steps are kept in a ring, the oldest ones are dropped once it is full
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class EditHistory {
+
+	/**
+	 * Number of steps that can be undone
+	 */
+	public static final int CAPACITY = 256;
+
+	//types of changes
+	private static final int ADD = 1;
+	private static final int REMOVE = 2;
+	private static final int UPDATE = 3;
+	private static final int REORDER = 4;
+
+	/**
+	 * One difference between two committed lists
+	 */
+	private static class Change {
+		int type;
+		/**
+		 * Index of the added or removed component, in the list as it is when the change is applied
+		 */
+		int index;
+		GameComponent comp;
+		boolean released;
+		/**
+		 * Parameters of an updated component before and after the edit
+		 */
+		byte[] before;
+		byte[] after;
+		/**
+		 * The whole list before and after the edit, when its components were reordered
+		 */
+		GameComponent[] componentsBefore;
+		GameComponent[] componentsAfter;
+		boolean[] releasedBefore;
+		boolean[] releasedAfter;
+	}
+
+	/**
+	 * The parameters of a component as they were committed, and its edit revision then
+	 */
+	private static class Entry {
+		int revision;
+		byte[] params;
+
+		Entry(int revision, byte[] params) {
+			this.revision = revision;
+			this.params = params;
+		}
+	}
+
+	/**
+	 * Ring of steps: the oldest is at start, the first cursor steps can be undone and
+	 * the ones after them redone
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private ArrayList<Change>[] steps = new ArrayList[CAPACITY];
+	private int start;
+	private int count;
+	private int cursor;
+
+	/**
+	 * The list as it was committed last
+	 */
+	private ArrayList<GameComponent> recorded = new ArrayList<>();
+	private ArrayList<Boolean> recordedReleased = new ArrayList<>();
+	private IdentityHashMap<GameComponent, Entry> entries = new IdentityHashMap<>();
+	/**
+	 * Receives the parameters of a component
+	 */
+	private ByteBuffer buffer = ByteBuffer.allocate(SceneFile.COMPONENTSIZE);
+
+
+	/**
+	 * Forgets every step, the list becomes the state the next edit is compared with.
+	 * Called when a list is loaded, loading cannot be undone
+	 * @param components The components
+	 * @param released released.get(i) is the released flag of the ith component
+	 */
+	public void reset(List<GameComponent> components, List<Boolean> released) {
+		Arrays.fill(steps, null);
+		start = 0;
+		count = 0;
+		cursor = 0;
+		entries.clear();
+		remember(components, released);
+	}
+
+	/**
+	 * Takes the list as it is as the state the next edit is compared with, without making
+	 * a step. For changes that follow from others, such as values computed again after an undo
+	 * @param components The components
+	 * @param released released.get(i) is the released flag of the ith component
+	 */
+	public void sync(List<GameComponent> components, List<Boolean> released) {
+		remember(components, released);
+	}
+
+	public boolean canUndo() {
+		return cursor > 0;
+	}
+
+	public boolean canRedo() {
+		return cursor < count;
+	}
+	/**
+	 * Ends an edit. The changes made to the list since the last commit become one step,
+	 * the steps that were undone can no longer be redone
+	 * @param components The components
+	 * @param released released.get(i) is the released flag of the ith component
+	 * @return True if the list had changed
+	 */
+	public boolean commit(List<GameComponent> components, List<Boolean> released) {
+
+		IdentityHashMap<GameComponent, Boolean> current = new IdentityHashMap<>();
+		for (GameComponent comp : components)
+			current.put(comp, true);
+
+		ArrayList<Change> step = new ArrayList<>();
+		int i = 0, j = 0;	//i goes through the new list, j through the committed one
+
+		while (i < components.size() || j < recorded.size()) {
+
+			GameComponent comp = (i < components.size()) ? components.get(i) : null;
+			GameComponent old = (j < recorded.size()) ? recorded.get(j) : null;
+
+			if (old != null && old == comp) {	//checking for a reference match
+				update(comp, step);
+				i++;
+				j++;
+			}
+			else if (old != null && !current.containsKey(old)) {
+				//the component is put back as it was committed, even if it changed before it was removed
+				Change change = change(REMOVE, i, old, recordedReleased.get(j));
+				change.before = entries.get(old).params;
+				step.add(change);
+				j++;
+			}
+			else if (comp != null && !entries.containsKey(comp)) {
+				step.add(change(ADD, i, comp, isReleased(released, i)));
+				i++;
+			}
+			else {
+				//the components were reordered, the whole list is kept with the step
+				step.clear();
+				step.add(reorder(components, released));
+				for (GameComponent c : components) {
+					if (entries.containsKey(c))
+						update(c, step);
+				}
+				for (GameComponent c : recorded) {
+					if (!current.containsKey(c))
+						update(c, step);
+				}
+				break;
+			}
+		}
+
+		remember(components, released);
+
+		if (step.isEmpty())
+			return false;
+
+		push(step);
+		return true;
+	}
+	/**
+	 * Undoes the last step. An edit that was not committed is committed first
+	 * @param components The components, changed in place
+	 * @param released released.get(i) is the released flag of the ith component, changed in place
+	 * @return True if a step was undone
+	 */
+	public boolean undo(List<GameComponent> components, List<Boolean> released) {
+
+		commit(components, released);
+		if (cursor == 0)
+			return false;
+
+		cursor--;
+		ArrayList<Change> step = steps[(start + cursor) % CAPACITY];
+
+		for (int k = step.size()-1; k >= 0; k--)
+			revert(step.get(k), components, released);
+
+		remember(components, released);
+		return true;
+	}
+	/**
+	 * Does again the last step undone
+	 * @param components The components, changed in place
+	 * @param released released.get(i) is the released flag of the ith component, changed in place
+	 * @return True if a step was redone
+	 */
+	public boolean redo(List<GameComponent> components, List<Boolean> released) {
+
+		//an edit made after the undo replaces the steps that could be redone
+		if (commit(components, released) || cursor == count)
+			return false;
+
+		ArrayList<Change> step = steps[(start + cursor) % CAPACITY];
+		cursor++;
+
+		for (Change change : step)
+			apply(change, components, released);
+
+		remember(components, released);
+		return true;
+	}
+	/**
+	 * Adds an update to a step if the parameters of a component changed since the last commit
+	 */
+	private void update(GameComponent comp, ArrayList<Change> step) {
+
+		Entry entry = entries.get(comp);
+		if (entry.revision == comp.getEditRevision())
+			return;
+
+		byte[] params = encode(comp);
+		entries.put(comp, new Entry(comp.getEditRevision(), params));
+
+		//a component set back to the same parameters has not changed
+		if (Arrays.equals(params, entry.params))
+			return;
+
+		Change change = new Change();
+		change.type = UPDATE;
+		change.comp = comp;
+		change.before = entry.params;
+		change.after = params;
+		step.add(change);
+	}
+
+	private Change change(int type, int index, GameComponent comp, boolean released) {
+		Change change = new Change();
+		change.type = type;
+		change.index = index;
+		change.comp = comp;
+		change.released = released;
+		return change;
+	}
+
+	private Change reorder(List<GameComponent> components, List<Boolean> released) {
+
+		Change change = new Change();
+		change.type = REORDER;
+		change.componentsBefore = recorded.toArray(new GameComponent[recorded.size()]);
+		change.componentsAfter = components.toArray(new GameComponent[components.size()]);
+		change.releasedBefore = new boolean[recordedReleased.size()];
+		change.releasedAfter = new boolean[components.size()];
+
+		for (int k = 0; k < change.releasedBefore.length; k++)
+			change.releasedBefore[k] = recordedReleased.get(k);
+		for (int k = 0; k < change.releasedAfter.length; k++)
+			change.releasedAfter[k] = isReleased(released, k);
+
+		return change;
+	}
+	/**
+	 * Adds a step after the last one done, dropping the oldest step when the ring is full
+	 */
+	private void push(ArrayList<Change> step) {
+
+		for (int k = cursor; k < count; k++)
+			steps[(start + k) % CAPACITY] = null;
+		count = cursor;
+
+		if (count == CAPACITY) {
+			steps[start] = null;
+			start = (start + 1) % CAPACITY;
+			count--;
+		}
+
+		steps[(start + count) % CAPACITY] = step;
+		count++;
+		cursor = count;
+	}
+
+	private void apply(Change change, List<GameComponent> components, List<Boolean> released) {
+
+		switch (change.type) {
+		case ADD:
+			components.add(change.index, change.comp);
+			released.add(change.index, change.released);
+			break;
+		case REMOVE:
+			components.remove(change.index);
+			released.remove(change.index);
+			break;
+		case UPDATE:
+			setParams(change.comp, change.after);
+			break;
+		default:
+			setList(change.componentsAfter, change.releasedAfter, components, released);
+		}
+	}
+
+	private void revert(Change change, List<GameComponent> components, List<Boolean> released) {
+
+		switch (change.type) {
+		case ADD:
+			components.remove(change.index);
+			released.remove(change.index);
+			break;
+		case REMOVE:
+			components.add(change.index, change.comp);
+			released.add(change.index, change.released);
+			setParams(change.comp, change.before);
+			break;
+		case UPDATE:
+			setParams(change.comp, change.before);
+			break;
+		default:
+			setList(change.componentsBefore, change.releasedBefore, components, released);
+		}
+	}
+	/**
+	 * Gives a component the parameters it had at a commit, it stays selected or not
+	 */
+	private void setParams(GameComponent comp, byte[] params) {
+
+		boolean selected = comp.isSelected();
+		comp.read(ByteBuffer.wrap(params, 1, params.length-1));	//after the tag
+		comp.initBox();
+		comp.restoreSelected(selected);
+
+		entries.put(comp, new Entry(comp.getEditRevision(), params));
+	}
+
+	private void setList(GameComponent[] comps, boolean[] flags, List<GameComponent> components, List<Boolean> released) {
+
+		components.clear();
+		released.clear();
+		for (int k = 0; k < comps.length; k++) {
+			components.add(comps[k]);
+			released.add(flags[k]);
+		}
+	}
+	/**
+	 * Keeps the list as the state the next edit is compared with. Only the components
+	 * that changed since the last commit are encoded
+	 */
+	private void remember(List<GameComponent> components, List<Boolean> released) {
+
+		IdentityHashMap<GameComponent, Entry> kept = new IdentityHashMap<>();
+		recordedReleased.clear();
+
+		for (int k = 0; k < components.size(); k++) {
+			GameComponent comp = components.get(k);
+			Entry entry = entries.get(comp);
+
+			if (entry == null || entry.revision != comp.getEditRevision())
+				entry = new Entry(comp.getEditRevision(), encode(comp));
+
+			kept.put(comp, entry);
+			recordedReleased.add(isReleased(released, k));
+		}
+
+		entries = kept;
+		recorded = new ArrayList<>(components);
+	}
+	/**
+	 * @return The tag and the parameters of a component, as written in a scene file.
+	 * The selection is not part of an edit, it is written as unselected
+	 */
+	private byte[] encode(GameComponent comp) {
+		boolean selected = comp.isSelected();
+		comp.restoreSelected(false);
+		buffer.clear();
+		SceneFile.writeComponent(buffer, comp);
+		comp.restoreSelected(selected);
+		return Arrays.copyOf(buffer.array(), buffer.position());
+	}
+
+	private boolean isReleased(List<Boolean> released, int i) {
+		return i >= released.size() || released.get(i);
+	}
+}
@@ -3,7 +3,7 @@ package gameComponents;
 import java.awt.*;
 import java.awt.geom.*;
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -42,6 +42,24 @@ public abstract class GameComponent implements Serializable {
 	 * The bounds of the component in the form of a rectangle
 	 */
 	private Rectangle box;				
+	/**
+	 * Incremented every time the bounding box changes, which happens
+	 * whenever the component is moved, rotated or resized.
+	 * Lets a Scene know which entries of its spatial index are out of date
+	 */
+	private transient int boxRevision;
+	/**
+	 * Incremented every time the component changes in a way that can change the result of a trace:
+	 * a new position, bounding box, color or optical property. Lets a Scene know which rays to trace again,
+	 * and whether anything changed at all. Selection and hits do not change it
+	 */
+	private transient int revision;
+	/**
+	 * Incremented every time a parameter written in a scene file changes: every change of the revision,
+	 * and the edits that cannot change a trace, such as the moveable, resizeable, rotateable and
+	 * selecteable flags. Lets the edit history and the journal know which components to record again
+	 */
+	private transient int editRevision;
 	/**
 	 * A useful constant, to simulate points/slopes of infinite values
 	 */
@@ -63,6 +81,7 @@ public abstract class GameComponent implements Serializable {
 	
 	public void setBounds(double x1, double y1, double x2, double y2) {
 		bounds = new double[] {x1, y1, x2, y2};
+		changed();
 	}
 	
 	public Rectangle getBox() {
@@ -71,6 +90,33 @@ public abstract class GameComponent implements Serializable {
 	
 	public void setBox(Rectangle rec) {
 		box = rec;
+		boxRevision++;
+		changed();
+	}
+	
+	public int getBoxRevision() {
+		return boxRevision;
+	}
+	
+	public int getRevision() {
+		return revision;
+	}
+	
+	public int getEditRevision() {
+		return editRevision;
+	}
+	/**
+	 * Called by the methods that change how rays interact with this component without changing its box
+	 */
+	protected void changed() {
+		revision++;
+		editRevision++;
+	}
+	/**
+	 * Called by the methods that change a parameter written in a scene file that rays do not depend on
+	 */
+	protected void edited() {
+		editRevision++;
 	}
 
 	public Point2D.Double getPosition() {
@@ -79,6 +125,7 @@ public abstract class GameComponent implements Serializable {
 
 	public void setPosition(Point2D.Double position) {
 		this.position = position;
+		changed();
 	}
 
 	public Color getColor() {
@@ -87,6 +134,7 @@ public abstract class GameComponent implements Serializable {
 
 	public void setColor(Color color) {
 		this.color = color;
+		changed();
 	}
 	
 	public boolean isMoveable() {
@@ -94,6 +142,8 @@ public abstract class GameComponent implements Serializable {
 	}
 
 	public void setMoveable(boolean moveable) {
+		if (this.moveable != moveable)
+			edited();
 		this.moveable = moveable;
 	}
 	
@@ -102,6 +152,8 @@ public abstract class GameComponent implements Serializable {
 	}
 
 	public void setResizeable(boolean resizeable) {
+		if (this.resizeable != resizeable)
+			edited();
 		this.resizeable = resizeable;
 	}
 	
@@ -110,6 +162,8 @@ public abstract class GameComponent implements Serializable {
 	}
 
 	public void setRotateable(boolean rotateable) {
+		if (this.rotateable != rotateable)
+			edited();
 		this.rotateable = rotateable;
 	}
 	
@@ -118,6 +172,8 @@ public abstract class GameComponent implements Serializable {
 	}
 
 	public void setSelecteable(boolean selecteable) {
+		if (this.selecteable != selecteable)
+			edited();
 		this.selecteable = selecteable;
 	}
 	
@@ -131,6 +187,14 @@ public abstract class GameComponent implements Serializable {
 		
 		this.selected = selected;
 	}
+	/**
+	 * Sets the selection without the effects of setSelected, such as a ray being turned on.
+	 * Used to write or read the parameters of a component without changing its selection
+	 * @param selected The selection to give back
+	 */
+	void restoreSelected(boolean selected) {
+		this.selected = selected;
+	}
 	
 	
 	/** 
@@ -152,78 +216,14 @@ public abstract class GameComponent implements Serializable {
 	 * @param deltaY Displacement in the y direction
 	 * @return True if there is contact, false otherwise
 	 */
-	public boolean contact(Rectangle rec, int deltaX, int deltaY) {	
-		Rectangle thisRec = (Rectangle)getBox().clone();
-		thisRec.setLocation((int)(thisRec.getX()+deltaX), (int)(thisRec.getY()+deltaY));
+	public boolean contact(Rectangle rec, double deltaX, double deltaY) {	
+		Rectangle2D.Double thisRec = new Rectangle2D.Double(getBox().getX()+deltaX, getBox().getY()+deltaY, getBox().getWidth(), getBox().getHeight());
 
 		if (thisRec.intersects(rec))
 			return true;
 		else return false;
 	}
 	
-	/**
-	 * Checks that the intersection point is in the same quadrant of the 2D plane 
-	 * as the origin point and end point of a ray segment
-	 * @param origin The origin point of the ray segment
-	 * @param end The end point of the ray segment
-	 * @param intersec The intersection of the ray segment with this component
-	 * @return True if the intersection is in the same quadrant, false otherwise
-	 */
-	protected boolean sameQuadrant(Point2D.Double origin, Point2D.Double end, Point2D.Double intersec) {	
-		
-		Point2D.Double p1 = new Point2D.Double(end.getX()-origin.getX(), end.getY()-origin.getY());
-		Point2D.Double p2 = new Point2D.Double(intersec.getX()-origin.getX(), intersec.getY()-origin.getY());
-		
-		int x1 = (p1.getX() >= 0) ? 1 : -1;
-		int x2 = (p2.getX() >= 0) ? 1 : -1;
-		int y1 = (p1.getY() >= 0) ? 1 : -1;
-		int y2 = (p2.getY() >= 0) ? 1 : -1;
-
-		if (x1 == x2 && y1 == y2)
-			return true;
-		else 
-			return false;
-	}
-	
-	/**
-	 * Checks if the given point p is within the rectangular bounds specified by b
-	 * @param p A point
-	 * @param b Rectangular bounds
-	 * @return True if point p is within the bounds, false otherwise
-	 */
-	protected boolean isWithinBounds(Point2D.Double p, double[] b) {
-		
-		double minX = Math.min(b[0], b[2]);
-		double maxX = Math.max(b[0], b[2]);
-		
-		double minY = Math.min(b[1], b[3]);
-		double maxY = Math.max(b[1], b[3]);
-
-		if (p.getX() >= minX && p.getX() <= maxX && p.getY() >= minY && p.getY() <= maxY)
-			return true;
-		else return false;
-	}
-	
-	/**
-	 * Checks if the point p is within the rectangular bounds delimited by points p1 and p2
-	 * @param p A point
-	 * @param p1 Bounding point 1
-	 * @param p2 Bounding point 2
-	 * @return True, if point p is within the bounds of p1 and p2, false otherwise
-	 */
-	protected boolean isWithinBounds(Point2D.Double p, Point2D.Double p1, Point2D.Double p2) {
-
-		double minX = Math.min(p1.getX(), p2.getX());
-		double maxX = Math.max(p1.getX(), p2.getX());
-		
-		double minY = Math.min(p1.getY(), p2.getY());
-		double maxY = Math.max(p1.getY(), p2.getY());
-		
-		if (p.getX() <= maxX && p.getX() >= minX && p.getY() <= maxY && p.getY() >= minY)
-			return true;
-		else return false;
-	}
-	
 	/**
 	 * Computes the distance between points (x1, y1) and (x2, y2)
 	 * @param x1 X coordinate of point 1
@@ -249,103 +249,177 @@ public abstract class GameComponent implements Serializable {
 		return new Point2D.Double((x1+x2)/2, (y1+y2)/2);
 	}
 	/**
-	 * Solves a quadratic equation
-	 * @param a Parameter of the equation
-	 * @param b Parameter of the equation
-	 * @param discr Discriminant of the equation
-	 * @return The solutions of the equation
+	 * Finds where a ray segment crosses the line segment from (x1, y1) to (x2, y2)
+	 * @param segment The ray segment
+	 * @return The distance along the ray segment of the crossing point, RaySegment.MISS if they do not cross
 	 */
-	protected ArrayList<Double> quadSolver(double a, double b, double discr) {
-		
-		ArrayList<Double> solutions = new ArrayList<>();
-		
-			solutions.add((-b + Math.sqrt(discr))/(2*a));
-			solutions.add((-b - Math.sqrt(discr))/(2*a));
-		
-		return solutions;	
+	protected double lineIntersection(RaySegment segment, double x1, double y1, double x2, double y2) {
+
+		double ex = x2-x1;
+		double ey = y2-y1;
+		double denominator = segment.getDirectionX()*ey - segment.getDirectionY()*ex;
+
+		//the segments are parallel
+		if (denominator == 0)
+			return RaySegment.MISS;
+
+		double wx = x1-segment.getOriginX();
+		double wy = y1-segment.getOriginY();
+		double t = (wx*ey - wy*ex)/denominator;									//position along the ray segment
+		double u = (wx*segment.getDirectionY() - wy*segment.getDirectionX())/denominator;	//position along the line segment, from 0 to 1
+
+		if (u >= 0 && u <= 1 && segment.contains(t))
+			return t;
+		else return RaySegment.MISS;
 	}
 	/**
-	 * Finds the intersections of a vertical line with a circle
-	 * @param x X coordinate of the vertical line
-	 * @return Y coordinates of intersection points
+	 * Finds where a ray segment crosses the sides of the rectangle
+	 * delimited by the bounds b, entering or leaving it
+	 * @param segment The ray segment
+	 * @param b Rectangular bounds
+	 * @return The distance along the ray segment of the first crossing point, RaySegment.MISS if there is none
 	 */
-	protected double[] circSolsX(double x, double radius, double h, double k) {
-		
-		double[] solutions = new double[2];
-		
-		solutions[0] = Math.sqrt(Math.pow(radius, 2) - Math.pow(x-h, 2)) + k;
-		solutions[1] = -Math.sqrt(Math.pow(radius, 2) - Math.pow(x-h, 2)) + k;
-		
-		return solutions;	
+	protected double boxIntersection(RaySegment segment, double[] b) {
+
+		//distances at which the line of the segment enters and leaves the rectangle (slab test)
+		double tEnter = -Double.MAX_VALUE;
+		double tLeave = Double.MAX_VALUE;
+
+		double minX = Math.min(b[0], b[2]);
+		double maxX = Math.max(b[0], b[2]);
+		double minY = Math.min(b[1], b[3]);
+		double maxY = Math.max(b[1], b[3]);
+
+		if (segment.getDirectionX() == 0) {
+			if (segment.getOriginX() < minX || segment.getOriginX() > maxX)
+				return RaySegment.MISS;
+		}
+		else {
+			double t1 = (minX-segment.getOriginX())/segment.getDirectionX();
+			double t2 = (maxX-segment.getOriginX())/segment.getDirectionX();
+			tEnter = Math.max(tEnter, Math.min(t1, t2));
+			tLeave = Math.min(tLeave, Math.max(t1, t2));
+		}
+
+		if (segment.getDirectionY() == 0) {
+			if (segment.getOriginY() < minY || segment.getOriginY() > maxY)
+				return RaySegment.MISS;
+		}
+		else {
+			double t1 = (minY-segment.getOriginY())/segment.getDirectionY();
+			double t2 = (maxY-segment.getOriginY())/segment.getDirectionY();
+			tEnter = Math.max(tEnter, Math.min(t1, t2));
+			tLeave = Math.min(tLeave, Math.max(t1, t2));
+		}
+
+		if (tEnter > tLeave)
+			return RaySegment.MISS;
+		else if (segment.contains(tEnter))
+			return tEnter;
+		else if (segment.contains(tLeave))
+			return tLeave;
+		else return RaySegment.MISS;
 	}
 	/**
-	 * Finds the intersections of any line with a circle
-	 * @param segment Line segment to test for intersection with this circle
-	 * @param radius Radius of this circle
-	 * @param h X coordinate of the center of this circle
-	 * @param k Y coordinate of the center of this circle
-	 * @return The intersection points
+	 * Finds the first intersection of the line of a ray segment with a circle,
+	 * ignoring the range of the segment. Nothing is allocated, the second
+	 * intersection is given by otherCircleIntersection()
+	 * @param segment The ray segment
+	 * @param radius Radius of the circle
+	 * @param h X coordinate of the center of the circle
+	 * @param k Y coordinate of the center of the circle
+	 * @return The distance along the ray segment of the nearest intersection,
+	 * NaN if the line of the segment misses the circle
 	 */
-	protected ArrayList<Point2D.Double> circSolsGeneral(LineEq segment, double radius, double h, double k) {
-		
-		ArrayList<Point2D.Double> solutions = new ArrayList<>();
-		
-		double a = Math.pow(segment.getSlope(), 2)+1;
-		double b = 2*segment.getSlope()*segment.getIntercept() -2*h -2*segment.getSlope()*k;
-		double c = Math.pow(h, 2) -2*segment.getIntercept()*k + Math.pow(segment.getIntercept(), 2) + Math.pow(k, 2) - Math.pow(radius, 2);
-		double d = Math.pow(b, 2) -4*a*c;	//discriminant
-		
-		if (d < 0) 
-			return null;
-		
-		ArrayList<Double> xSol = quadSolver(a, b, d);
+	protected double circleIntersection(RaySegment segment, double radius, double h, double k) {
+
+		//the direction has a length of 1, so t^2 + 2bt + c = 0
+		double ox = segment.getOriginX()-h;
+		double oy = segment.getOriginY()-k;
+		double b = ox*segment.getDirectionX() + oy*segment.getDirectionY();
+		double c = ox*ox + oy*oy - radius*radius;
+		double d = b*b - c;	//discriminant
 
-		solutions.add(new Point2D.Double(xSol.get(0), segment.getSlope()*xSol.get(0) + segment.getIntercept()));
-		solutions.add(new Point2D.Double(xSol.get(1), segment.getSlope()*xSol.get(1) + segment.getIntercept()));
+		if (d < 0)
+			return Double.NaN;
 
-		return solutions;	
+		return -b - Math.sqrt(d);
 	}
-	
 	/**
-	 * Checks if the given slope is vertical (infinite value).
-	 * This works because java returns "infinity" or "-Infinity" when a double variable has value 1/0.0 or -1/0.0
-	 * @param slope Slope of the line to test
-	 * @return True if the slope is infinite, false otherwise
+	 * The two solutions of t^2 + 2bt + c = 0 add up to -2b
+	 * @param segment The ray segment
+	 * @param h X coordinate of the center of the circle
+	 * @param k Y coordinate of the center of the circle
+	 * @param first The value returned by circleIntersection()
+	 * @return The distance along the ray segment of the farthest intersection with the circle
 	 */
-	protected boolean infiniteSlope(double slope) {
-		if ((slope+ "").equals("Infinity") || (slope+ "").equals("-Infinity"))
-			return true;
-		else 
-			return false;
+	protected double otherCircleIntersection(RaySegment segment, double h, double k, double first) {
+		double b = (segment.getOriginX()-h)*segment.getDirectionX() + (segment.getOriginY()-k)*segment.getDirectionY();
+		return -2*b - first;
 	}
 	
 	/**
-	 * Checks if the given points are approximately equal
-	 * @param p1 Point 1
-	 * @param p2 Point 2
-	 * @return True if they are approximately equal, false otherwise
+	 * Writes the parameters that define this component, in the format of a SceneFile.
+	 * Subclasses write their own parameters after the ones of their superclass,
+	 * what can be computed from the parameters, such as the box, is not written
+	 * @param out The buffer of the scene file, with room for SceneFile.COMPONENTSIZE bytes
 	 */
-	protected boolean approx(Point2D.Double p1, Point2D.Double p2) {
-		double pr = 3;
-		if ((p1.getX() >= p2.getX()-pr && p1.getX() <= p2.getX()+pr && p1.getY() >= p2.getY()-pr && p1.getY() <= p2.getY()+pr)
-				&& (p2.getX() >= p1.getX()-pr && p2.getX() <= p1.getX()+pr && p2.getY() >= p1.getY()-pr && p2.getY() <= p1.getY()+pr)) 
-			return true;
-		else
-			return false;
+	protected void write(ByteBuffer out) {
+		
+		out.put((byte)(position != null ? 1 : 0));
+		if (position != null) {
+			out.putDouble(position.getX());
+			out.putDouble(position.getY());
+		}
+		
+		out.put((byte)(color != null ? 1 : 0));
+		if (color != null)
+			out.putInt(color.getRGB());
+		
+		int flags = 0;
+		if (moveable)	flags |= 1;
+		if (resizeable)	flags |= 2;
+		if (rotateable)	flags |= 4;
+		if (selecteable) flags |= 8;
+		if (selected)	flags |= 16;
+		out.put((byte)flags);
+		
+		out.put((byte)(bounds == null ? -1 : bounds.length));
+		if (bounds != null) {
+			for (double b : bounds)
+				out.putDouble(b);
+		}
 	}
 	/**
-	 * Checks if the given points are approximately equal
-	 * @param p1 Point 1
-	 * @param p2 Point 2
-	 * @param pr The amount of precision desired in the approximation
-	 * @return True if they are approximately equal, false otherwise
+	 * Reads the parameters written by write(ByteBuffer), in the same order.
+	 * The caller initializes the box once the whole component is read
+	 * @param in The buffer of the scene file
 	 */
-	protected boolean approx(Point2D.Double p1, Point2D.Double p2, double pr) {
-		if ((p1.getX() >= p2.getX()-pr && p1.getX() <= p2.getX()+pr && p1.getY() >= p2.getY()-pr && p1.getY() <= p2.getY()+pr)
-				&& (p2.getX() >= p1.getX()-pr && p2.getX() <= p1.getX()+pr && p2.getY() >= p1.getY()-pr && p2.getY() <= p1.getY()+pr)) 
-			return true;
-		else
-			return false;
+	protected void read(ByteBuffer in) {
+		
+		position = null;
+		if (in.get() != 0)
+			position = new Point2D.Double(in.getDouble(), in.getDouble());
+		
+		color = null;
+		if (in.get() != 0)
+			color = new Color(in.getInt(), true);
+		
+		int flags = in.get();
+		moveable = (flags & 1) != 0;
+		resizeable = (flags & 2) != 0;
+		rotateable = (flags & 4) != 0;
+		selecteable = (flags & 8) != 0;
+		selected = (flags & 16) != 0;
+		
+		int n = in.get();
+		bounds = null;
+		if (n >= 0) {
+			bounds = new double[n];
+			for (int i = 0; i < n; i++)
+				bounds[i] = in.getDouble();
+		}
+		changed();
 	}
 	/**
 	 * Checks if the given values are approximately equal
@@ -387,12 +461,11 @@ public abstract class GameComponent implements Serializable {
 	
 	/**
 	 * Computes the intersection of the given ray segment with this component
-	 * @param p1 The source point of the ray segment
-	 * @param p2 The end point of the ray segment
 	 * @param segment The ray segment intersecting this component
-	 * @return The intersection point
+	 * @return The distance along the segment of the nearest intersection point,
+	 * RaySegment.MISS if the segment does not hit this component
 	 */
-	public abstract Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment);
+	public abstract double intersection(RaySegment segment);
 	
 	/**
 	 * Rotates the component in the plane
@@ -2,7 +2,7 @@ package gameComponents;
 import java.awt.*;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -40,11 +40,6 @@ public class Lens extends RefractiveZone {
 	 */
 	private double k2; 
 	
-	//the values of the surface currently being interacted with
-	private double h;
-	private double k;
-	private double arcAngle;
-	private double arcAngleb;
 	private double arcAngle1 = 180;
 	private double arcAngleb1;
 	private double arcAngleb2;	
@@ -59,11 +54,6 @@ public class Lens extends RefractiveZone {
 	 * specified in degrees, values between 30 and 180
 	 */
 	private double arcLength2;
-	/**
-	 * Keeps track of whether the incident ray is coming into the lens
-	 * (false) or going out (true)
-	 */
-	protected boolean leaving = false;
 	/**
 	 * Horizontal distance between the 2 surfaces of the lens.
 	 * Helps to fix the surfaces together
@@ -187,8 +177,8 @@ public class Lens extends RefractiveZone {
 			arcLength1--;
 
 		arcAngleb1 = arcAngle1+arcLength1;
-		if (arcAngleb1 >= 180)
-			arcAngleb1 -= 180;
+		if (arcAngleb1 >= 360)
+			arcAngleb1 -= 360;
 		
 		initBounds();
 		initInclination();
@@ -298,203 +288,84 @@ public class Lens extends RefractiveZone {
 	}
 	/**
 	 * 
-	 * @see gameComponents.RefractiveZone#setNormalLine(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
+	 * @see gameComponents.RefractiveZone#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public void setNormalLine(Point2D.Double intersection, Point2D.Double p1) {	
-		setNormalLine(new LineEq(h, k, intersection.getX(), intersection.getY()));		
+	public double intersection(RaySegment segment) {
+		return Math.min(intersection(segment, h1, k1, arcAngle1, arcAngleb1), intersection(segment, h2, k2, arcAngle2, arcAngleb2));
 	}
 	/**
-	 *
-	 * @see gameComponents.RefractiveZone#refraction(double, double, double, double)
+	 * Computes the intersection of a ray segment with one surface of the lens
+	 * @param segment The ray segment
+	 * @param h X coordinate of the center of the circle of the surface
+	 * @param k Y coordinate of the center of the circle of the surface
+	 * @param arcAngle Angle of the first end point of the arc of the surface
+	 * @param arcAngleb Angle of the second end point of the arc of the surface
+	 * @return The distance along the segment of the closest intersection, RaySegment.MISS if there is none
 	 */
-	@Override
-	public double refraction(double n1, double n2, double m1, double m2) {
+	private double intersection(RaySegment segment, double h, double k, double arcAngle, double arcAngleb) {
 
-		/*
-		 * computing refraction in a lens or a prism is slightly different 
-		 * than in a refractive zone
-		 */
-		leaving = (leaving) ? false : true;
-		
-		double incidentAngle;
-		boolean invert = false;
-		
-		if (infiniteSlope(m1) && infiniteSlope(m2))
-			return m1;
-		else if (infiniteSlope(m1)) {
-			if (m2 >= 0)
-				incidentAngle = Math.PI/2 - Math.atan(m2);
-			else
-				incidentAngle = Math.PI/2 - (Math.PI-Math.atan(m2));
-		}
-		else if (infiniteSlope(m2)) {
-			if (m1 >= 0)
-				incidentAngle = Math.PI/2 - Math.atan(m1);
-			else
-				incidentAngle = Math.PI/2 - (Math.PI-Math.atan(m1));
-		}
-		else {
-			//m2 is the normal except if invert = true
-		
-			if (m1 > m2) {
-				double temp = m1;
-				m1 = m2;
-				m2 = temp;
-				invert = true;
-			}
-			incidentAngle = Math.abs(Math.atan((m2-m1)/(1 + m1*m2)));
-		}
-		
-		double criticalAngle = criticalAngle(n1, n2);	
-		if (incidentAngle < -Math.PI/2) {
-			incidentAngle += Math.PI;
-		}
-		if (incidentAngle > Math.PI/2) {
-			incidentAngle -= Math.PI;
-		}
-		
-		if (incidentAngle >= criticalAngle) {	
+		double t = circleIntersection(segment, radius, h, k);
 
-			leaving = (leaving) ? false : true;
-			
-			if (invert) {
-				double temp = m1;
-				m1 = m2;
-				m2 = temp;
-			}
-			return reflection(m1, m2);
-		}	
-		else {
-			double refractedAngle = Math.asin((n1*Math.sin(incidentAngle))/n2); //snell's law
-			double refractedSlope;
-			if (invert) {
-				double temp = m1;
-				m1 = m2;
-				m2 = temp;
-			}
-			// computation here depends on the situation, check everywhere for redundancy/ clean code
-			if (infiniteSlope(m1)) {
-				if (m2 >= 0)
-					refractedSlope = Math.tan(Math.atan(m2)+refractedAngle);
-				else
-					refractedSlope = Math.tan(Math.atan(m2)-refractedAngle);
-			}
-			else if (infiniteSlope(m2)) {
-				if (m1 >= 0)
-					refractedSlope = Math.tan(Math.PI/2-refractedAngle);
-				else
-					refractedSlope = Math.tan(Math.PI/2+refractedAngle);
-			}
-			else {
-					if ((m1 <= 0 && m2 <= 0) || (m1 >= 0 && m2 >= 0)) {
-						if (Math.atan(m2) > Math.atan(m1)) 
-							refractedSlope = Math.tan(Math.atan(m2)-refractedAngle);
-						else 
-							refractedSlope = Math.tan(Math.atan(m2)+refractedAngle);
-					}
-					else {
-						
-						if (m1 <= 0) 
-							refractedSlope = Math.tan(Math.atan(m1)-(incidentAngle-refractedAngle));
-						else 
-							refractedSlope = Math.tan(Math.atan(m1)+(incidentAngle-refractedAngle));
-					}
-			}
-			return refractedSlope;
-		}
+		if (Double.isNaN(t))
+			return RaySegment.MISS;
+
+		if (segment.contains(t) && onSurface(segment.getX(t), segment.getY(t), h, k, arcAngle, arcAngleb))
+			return t;
+
+		t = otherCircleIntersection(segment, h, k, t);
+
+		if (segment.contains(t) && onSurface(segment.getX(t), segment.getY(t), h, k, arcAngle, arcAngleb))
+			return t;
+
+		return RaySegment.MISS;
+	}
+	/**
+	 * The point is on the surface whose circle passes the closest to it
+	 * @return 1 or 2
+	 * @see gameComponents.RefractiveZone#surfaceAt(double, double)
+	 */
+	@Override
+	protected int surfaceAt(double x, double y) {
+		if (Math.abs(distance(x, y, h1, k1)-radius) <= Math.abs(distance(x, y, h2, k2)-radius))
+			return 1;
+		else return 2;
+	}
+	/**
+	 * The lens is the intersection of the disks of its 2 surfaces, so its outward normal
+	 * goes from the center of the circle of the surface that was hit to the point
+	 * @see gameComponents.RefractiveZone#normalX(int, double, double)
+	 */
+	@Override
+	protected double normalX(int surface, double x, double y) {
+		if (surface == 1)
+			return (x-h1)/distance(x, y, h1, k1);
+		else return (x-h2)/distance(x, y, h2, k2);
 	}
 	/**
 	 * 
-	 * @see gameComponents.RefractiveZone#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.RefractiveZone#normalY(int, double, double)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
-	
-		//determines which surface the ray segment just hit
-		if (which(p1, segment) == 1) {
-			h = h1;
-			k = k1;
-			arcAngle = arcAngle1;
-			arcAngleb = arcAngleb1;
-		}
-		else {
-			h = h2;
-			k = k2;
-			arcAngle = arcAngle2;
-			arcAngleb = arcAngleb2;
-		}
-		
-		Point2D.Double inter;	//intersection point	
-		double interx, intery;	//x and y coordinates of the intersection point
-		
-		if (infiniteSlope(segment.getSlope())) {
-			
-			interx = p1.getX();
-			
-			double[] circleSols = circSolsX(p1.getX(), radius, h, k);
-			double closeY = circleSols[0];
-			double farY = circleSols[1];
-			
-			if (p1.distance(p1.getX(), farY) < p1.distance(p1.getX(), closeY)) {
-				double temp = closeY;
-				closeY = farY;
-				farY = temp;
-			}
-			
-			if (onSurface(interx, closeY))
-				intery = closeY;
-			else
-				intery = farY;
-		}
-		else {	
-			
-			ArrayList<Point2D.Double> solutions = circSolsGeneral(segment, radius, h, k);
-
-			if (solutions == null)
-				return null;
-				
-			Point2D.Double closeSol = solutions.get(0);
-			Point2D.Double farSol = solutions.get(1);
-					
-			double closeDis = closeSol.distance(p1);
-			double farDis = farSol.distance(p1);
-					
-			if (closeDis > farDis) {
-				Point2D.Double temp = (Point2D.Double)closeSol.clone();	
-				closeSol = (Point2D.Double)farSol.clone();
-				farSol = temp;		
-			}
-
-			if (onSurface(closeSol.getX(), closeSol.getY()) && !approx(p1, closeSol)) {
-				interx = closeSol.getX();
-				intery = closeSol.getY();
-			}
-			else {
-				interx = farSol.getX();
-				intery = farSol.getY();
-			}
-		}
-
-		inter = new Point2D.Double(interx, intery);	
-
-		if (onSurface(interx, intery) && !approx(inter, p1)) 
-			return inter;
-		else {
-			leaving = false;
-			return null;	
-		}
+	protected double normalY(int surface, double x, double y) {
+		if (surface == 1)
+			return (y-k1)/distance(x, y, h1, k1);
+		else return (y-k2)/distance(x, y, h2, k2);
 	}
 	/**
-	 * Checks if a given point is on the lens or not
+	 * Checks if a given point is on a surface of the lens or not
 	 * @param px X coordinate of the tested point
 	 * @param py Y coordinate of the tested point
+	 * @param h X coordinate of the center of the circle of the surface
+	 * @param k Y coordinate of the center of the circle of the surface
+	 * @param arcAngle Angle of the first end point of the arc of the surface
+	 * @param arcAngleb Angle of the second end point of the arc of the surface
 	 * @return True if the tested point is on the surface of the lens, false otherwise
 	 */
-	private boolean onSurface(double px, double py) {	
+	private boolean onSurface(double px, double py, double h, double k, double arcAngle, double arcAngleb) {	
 	
 		//compute the angle (az) at which this point is on
-		//the circle equation of this curved mirror
+		//the circle equation of this surface
 		double ax = px - h;	
 		double ay = k - py;
 		double az = Math.toDegrees(Math.atan(ay/ax));	
@@ -510,7 +381,7 @@ public class Lens extends RefractiveZone {
 		//of the arc representing this surface of the lens
 		if (arcAngleb > arcAngle) {
 			
-			if (az <= arcAngleb && az >= arcAngle)	//+-2 to account for imprecisions
+			if (az <= arcAngleb && az >= arcAngle)
 				return true;
 			else 
 				return false;
@@ -523,83 +394,6 @@ public class Lens extends RefractiveZone {
 				return false;
 		}
 	}
-	/**
-	 * 
-	 * @see gameComponents.RefractiveZone#exiting(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
-	 */
-	@Override
-	public boolean exiting(Point2D.Double source, Point2D.Double intersec) {
-		return leaving;
-	}
-	/**
-	 * Determines whether the current ray is incident on surface 1 or 2
-	 * @param p1 Source end point of the incident ray
-	 * @param segment Incident ray segment
-	 * @return 1 if interacting with surface 1, 2 otherwise
-	 */
-	private int which(Point2D.Double p1, LineEq segment) {	
-		
-		//intercept of the axis through the lens with the y-axis
-		double bodyinter = getBounds()[1] - getInclination()*getBounds()[0];
-		
-		//intercepts with the y-axis of lines perpendicular to the lens 
-		//and passing through (bounds[0], bounds[1]) and (bounds[2], bounds[3]) respectively
-		double boundsinter1 = getBounds()[1] - (-1/getInclination())*getBounds()[0];
-		double boundsinter2 = getBounds()[3] - (-1/getInclination())*getBounds()[2];
-		
-		double max = Math.max(p1.getX()*(-1/getInclination())+boundsinter1, p1.getX()*(-1/getInclination())+boundsinter2);
-		double min = Math.min(p1.getX()*(-1/getInclination())+boundsinter1, p1.getX()*(-1/getInclination())+boundsinter2);
-		
-		//coordinates of the intersection of the ray segment with the axis throught the lens
-		double tempx = (segment.getIntercept()-bodyinter)/(getInclination()-segment.getSlope());	
-		double tempy = getInclination()*tempx + bodyinter;
-		
-		double src = p1.getY();	
-		
-		//compute distance between the source point of the ray segment and the closest
-		//bounding point of the lens
-		Point2D.Double bound1 = new Point2D.Double(getBounds()[0], getBounds()[1]);
-		Point2D.Double bound2 = new Point2D.Double(getBounds()[2], getBounds()[3]);
-		double disClosestBound = Math.min(p1.distance(bound1), p1.distance(bound2));
-		
-		//using the values computed above...
-		
-		//check if the y value of the source point of the ray is
-		//within the lines perpendicular to the axis through the lens
-		//i.e. checks if ray segment is "facing" one surface or the other
-		if (src >= min && src <= max) {
-			
-			//if the ray is leaving the lens, it interacts with the surface
-			//whose coordinates are the closest to its source point
-			if (leaving) {
-				if (p1.distance(h1, k1) < p1.distance(h2, k2)) 
-					return 1;
-				else return 2;
-			}
-			else {
-				
-				if (p1.distance(h1, k1) > p1.distance(h2, k2)) 
-					return 1;
-				else return 2;
-			}
-		}
-		else {	//if the ray is not "facing" one of the surfaces...
-			
-			//if it crosses the axis through the lens before it intersects with a surface
-			//then it interacts with the surface whose coordinates are closest to its source point,
-			if (p1.distance(h1, k1) < p1.distance(h2, k2)) {
-				if (p1.distance(tempx, tempy) <= disClosestBound) 
-					return 1;
-				else return 2;
-			}
-			else {
-				
-				if (p1.distance(tempx, tempy) <= disClosestBound) 
-					return 2;
-				else return 1;
-			}
-		}
-	}
 	/**
 	 * 
 	 * @see gameComponents.RefractiveZone#draw(java.awt.Graphics2D, java.awt.Rectangle)
@@ -624,6 +418,52 @@ public class Lens extends RefractiveZone {
 		g.drawArc((int)(h2-radius), (int)(k2-radius), (int)radius*2, (int)radius*2, 
 				(int)arcAngle2, (int)arcLength1);
 	}
+	/**
+	 * 
+	 * @see gameComponents.RefractiveZone#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		//the second surface is the first one translated by (dx, dy) and turned by 180 degrees
+		out.putDouble(radius);
+		out.putDouble(h1);
+		out.putDouble(k1);
+		out.putDouble(dx);
+		out.putDouble(dy);
+		out.putDouble(arcAngle1);
+		out.putDouble(arcLength1);
+	}
+	/**
+	 * 
+	 * @see gameComponents.RefractiveZone#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		radius = in.getDouble();
+		h1 = in.getDouble();
+		k1 = in.getDouble();
+		dx = in.getDouble();
+		dy = in.getDouble();
+		arcAngle1 = in.getDouble();
+		arcLength1 = in.getDouble();
+		
+		arcAngleb1 = arcAngle1+arcLength1;
+		if (arcAngleb1 >= 360)
+			arcAngleb1 -= 360;
+		
+		h2 = h1 + dx;
+		k2 = k1 + dy;
+		arcLength2 = arcLength1; 
+		arcAngle2 = 180 + arcAngle1;
+		if (arcAngle2 >= 360)
+			arcAngle2 -= 360;
+		
+		arcAngleb2 = arcAngle2+arcLength2;
+		if (arcAngleb2 >= 360)
+			arcAngleb2 -= 360;
+	}
 	/**
 	 * 
 	 * @see gameComponents.RefractiveZone#getType()
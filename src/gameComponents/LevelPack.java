@@ -0,0 +1,332 @@
+package gameComponents;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * All the levels of the game in one file. The file starts with the table of the
+ * types of components, shared by all the levels, and an index giving, for each
+ * level, its number of components, the area they cover and where the level and
+ * its small picture are in the file. The pack is mapped in memory when it is
+ * opened and only the index is read, so the levels can be listed and shown without
+ * being read. A level is then read alone, in the format of a SceneFile, directly
+ * from a slice of the mapped file.
+ * The pack is made from the files of the levels by running this class
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class LevelPack {
+
+	/**
+	 * The first 4 bytes of a level pack, "VOLP"
+	 */
+	public static final int MAGIC = 0x564F4C50;
+	/**
+	 * The version of the format written, packs of a later version are not read
+	 */
+	public static final int VERSION = 2;
+	/**
+	 * Size of the entry of a level in the index
+	 */
+	private static final int ENTRYSIZE = 9*4;
+	/**
+	 * Size of the pictures of the levels
+	 */
+	public static final int THUMBNAILWIDTH = 140;
+	public static final int THUMBNAILHEIGHT = 90;
+
+	private final File file;
+	/**
+	 * The whole file, mapped in memory. Only duplicates of it are read, so it can be shared by threads
+	 */
+	private MappedByteBuffer map;
+	/**
+	 * Where each level starts in the file, and its length
+	 */
+	private int[] offsets;
+	private int[] lengths;
+	/**
+	 * Number of components of each level
+	 */
+	private int[] counts;
+	/**
+	 * The area covered by the components of each level
+	 */
+	private Rectangle[] bounds;
+	/**
+	 * Where the picture of each level starts in the file, as a PNG file, and its length.
+	 * It is decoded the first time it is shown, the images are not created before, since
+	 * loading the image classes takes longer than reading a level
+	 */
+	private int[] thumbnailOffsets;
+	private int[] thumbnailLengths;
+	private BufferedImage[] images;
+
+
+	private LevelPack(File file) {
+		this.file = file;
+	}
+	/**
+	 * Maps a pack in memory and reads its index, the levels are read when they are asked for
+	 * @param file A level pack
+	 * @return The pack
+	 */
+	public static LevelPack open(File file) throws IOException {
+
+		LevelPack pack = new LevelPack(file);
+
+		//the mapping stays valid once the channel is closed
+		try (FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+			pack.map = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		ByteBuffer in = pack.map.duplicate();
+
+		try {
+			if (in.getInt() != MAGIC)
+				throw new IOException("Not a level pack");
+
+			int version = in.getShort() & 0xFFFF;
+			if (version > VERSION)
+				throw new IOException("Level pack version " + version + " is newer than this application");
+
+			//the components of the levels are written with the tags of this table
+			String[] types = SceneFile.getTypes();
+			int typeCount = in.get() & 0xFF;
+			for (int t = 0; t < typeCount; t++) {
+				byte[] name = new byte[in.get() & 0xFF];
+				in.get(name);
+				if (t >= types.length || !types[t].equals(new String(name, "US-ASCII")))
+					throw new IOException("Level pack made for other types of components, it must be made again");
+			}
+
+			int n = in.getInt();
+			pack.offsets = new int[n];
+			pack.lengths = new int[n];
+			pack.counts = new int[n];
+			pack.bounds = new Rectangle[n];
+			pack.thumbnailOffsets = new int[n];
+			pack.thumbnailLengths = new int[n];
+
+			for (int i = 0; i < n; i++) {
+				pack.offsets[i] = in.getInt();
+				pack.lengths[i] = in.getInt();
+				pack.counts[i] = in.getInt();
+				pack.bounds[i] = new Rectangle(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+				pack.thumbnailOffsets[i] = in.getInt();
+				pack.thumbnailLengths[i] = in.getInt();
+			}
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated level pack", ex);
+		}
+		return pack;
+	}
+
+	public File getFile() {
+		return file;
+	}
+	/**
+	 * @return The number of levels in the pack
+	 */
+	public int size() {
+		return offsets.length;
+	}
+
+	public int getComponentCount(int level) {
+		return counts[level];
+	}
+
+	public Rectangle getBounds(int level) {
+		return new Rectangle(bounds[level]);
+	}
+	/**
+	 * @param level The number of a level of the pack
+	 * @return The picture of the level, null if it has none
+	 */
+	public synchronized BufferedImage getThumbnail(int level) {
+
+		if (images == null)
+			images = new BufferedImage[offsets.length];
+
+		if (images[level] == null && thumbnailLengths[level] > 0) {
+			byte[] png = new byte[thumbnailLengths[level]];
+			slice(thumbnailOffsets[level], png.length).get(png);
+
+			try {
+				images[level] = ImageIO.read(new ByteArrayInputStream(png));
+			}
+			catch (IOException ex) {
+			}
+		}
+		return images[level];
+	}
+	/**
+	 * Reads one level directly from the mapped file, the other levels are not touched.
+	 * Can be called from any thread
+	 * @param level The number of a level of the pack
+	 * @return The level
+	 */
+	public SceneFile read(int level) throws IOException {
+		return SceneFile.read(slice(offsets[level], lengths[level]));
+	}
+	/**
+	 * @return A buffer over a part of the mapped file, without copying it
+	 */
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = map.duplicate();
+		slice.position(offset);
+		slice.limit(offset + length);
+		return slice.slice();
+	}
+	/**
+	 * Writes a pack with the given levels, in this order
+	 * @param file The file of the pack, replaced if it exists
+	 * @param levels The levels
+	 */
+	public static void write(File file, List<SceneFile> levels) throws IOException {
+
+		ArrayList<ByteBuffer> data = new ArrayList<>();
+		ArrayList<byte[]> thumbnails = new ArrayList<>();
+		ArrayList<Rectangle> areas = new ArrayList<>();
+
+		for (SceneFile level : levels) {
+			ByteBuffer buffer = level.toBuffer();
+			buffer.flip();
+			data.add(buffer);
+
+			Rectangle area = getArea(level.getComponents());
+			areas.add(area);
+			thumbnails.add(thumbnail(level.getComponents(), area));
+		}
+
+		String[] types = SceneFile.getTypes();
+		int headerSize = 4 + 2 + 1 + 4 + levels.size()*ENTRYSIZE;
+		for (String type : types)
+			headerSize += 1 + type.length();
+
+		try (DataOutputStream pack = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			pack.writeInt(MAGIC);
+			pack.writeShort(VERSION);
+
+			pack.writeByte(types.length);
+			for (String type : types) {
+				pack.writeByte(type.length());
+				pack.writeBytes(type);
+			}
+
+			//the levels follow the index, then the pictures
+			pack.writeInt(levels.size());
+			int offset = headerSize;
+			int thumbnailOffset = headerSize;
+			for (ByteBuffer buffer : data)
+				thumbnailOffset += buffer.remaining();
+
+			for (int i = 0; i < levels.size(); i++) {
+				Rectangle area = areas.get(i);
+
+				pack.writeInt(offset);
+				pack.writeInt(data.get(i).remaining());
+				pack.writeInt(levels.get(i).getComponents().size());
+				pack.writeInt(area.x);
+				pack.writeInt(area.y);
+				pack.writeInt(area.width);
+				pack.writeInt(area.height);
+				pack.writeInt(thumbnailOffset);
+				pack.writeInt(thumbnails.get(i).length);
+
+				offset += data.get(i).remaining();
+				thumbnailOffset += thumbnails.get(i).length;
+			}
+
+			for (ByteBuffer buffer : data)
+				pack.write(buffer.array(), 0, buffer.limit());
+			for (byte[] thumbnail : thumbnails)
+				pack.write(thumbnail);
+		}
+	}
+	/**
+	 * @return The union of the boxes of the components, an empty rectangle if there are none
+	 */
+	private static Rectangle getArea(List<GameComponent> components) {
+
+		Rectangle area = null;
+		for (GameComponent comp : components) {
+			if (comp.getBox() != null)
+				area = (area == null) ? new Rectangle(comp.getBox()) : area.union(comp.getBox());
+		}
+		return (area == null) ? new Rectangle() : area;
+	}
+	/**
+	 * Draws a small picture of a level, with its rays traced
+	 * @return The picture as a PNG file, empty if the level has no component
+	 */
+	private static byte[] thumbnail(ArrayList<GameComponent> components, Rectangle area) throws IOException {
+
+		if (area.isEmpty())
+			return new byte[0];
+
+		Scene scene = new Scene(components);
+		scene.setExecutor(null);
+		scene.publish(scene.trace());
+
+		BufferedImage image = new BufferedImage(THUMBNAILWIDTH, THUMBNAILHEIGHT, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+		//the whole area fits in the picture, centered
+		double scale = Math.min(THUMBNAILWIDTH/(double)area.width, THUMBNAILHEIGHT/(double)area.height);
+		g.translate((THUMBNAILWIDTH - area.width*scale)/2, (THUMBNAILHEIGHT - area.height*scale)/2);
+		g.scale(scale, scale);
+		g.translate(-area.x, -area.y);
+		g.setStroke(new BasicStroke((float)(1.5/scale)));	//lines stay visible once scaled down
+
+		for (GameComponent comp : components)
+			comp.draw(g, area);
+		scene.getLight().draw(g, area);
+		g.dispose();
+
+		ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", png);
+		return png.toByteArray();
+	}
+	/**
+	 * Makes the pack of the game from the files of the levels, numbered from 0.
+	 * To run again whenever a level file changes
+	 * @param args The folder of the levels, "levels" by default
+	 */
+	public static void main(String[] args) throws IOException {
+
+		File folder = new File(args.length > 0 ? args[0] : "levels");
+		ArrayList<SceneFile> levels = new ArrayList<>();
+
+		for (int n = 0; new File(folder, "" + n).exists(); n++)
+			levels.add(SceneFile.read(new File(folder, "" + n)));
+
+		write(new File(folder, "pack"), levels);
+		System.out.println(levels.size() + " levels packed in " + new File(folder, "pack"));
+	}
+}
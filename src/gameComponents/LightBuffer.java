@@ -0,0 +1,296 @@
+package gameComponents;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class accumulates the light of all the rays of a scene in one buffer over the plane.
+ * Every ray ending on an obstacle splats a spot of its color around the collision point,
+ * and the spots add up without limit where they overlap. Before display, the sums are
+ * tone mapped: they are added to the color of the obstacles and compressed smoothly
+ * into the range of the screen, so many overlapping rays brighten a wall up to white
+ * instead of clipping abruptly.
+ * The plane is divided in square tiles that only exist where there is light. A spot
+ * that appears or disappears is added or subtracted alone, and only the tiles it covers
+ * are tone mapped again
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class LightBuffer {
+
+	/**
+	 * Radius of the spot of light around a collision point
+	 */
+	private final int RADIUS = 30;
+	/**
+	 * Side of a tile in pixels
+	 */
+	private final int TILE = 64;
+	/**
+	 * Channel values up to this one are displayed as they are, higher values are compressed
+	 */
+	private final int KNEE = 192;
+
+	/**
+	 * The tiles that received light, by tile coordinates
+	 */
+	private HashMap<Long, Tile> tiles = new HashMap<>();
+	/**
+	 * The spots in the buffer: x and y in the plane, and the RGB color of the ray
+	 */
+	private ArrayList<int[]> spots = new ArrayList<>();
+	/**
+	 * The revision and the area of each obstacle when the tiles were last tone mapped
+	 */
+	private IdentityHashMap<Obstacle, int[]> obstacles = new IdentityHashMap<>();
+	/**
+	 * The obstacles of the scene, the light is only displayed on them
+	 */
+	private ArrayList<Obstacle> walls = new ArrayList<>();
+
+	/**
+	 * A square part of the buffer
+	 */
+	private class Tile {
+		/**
+		 * Position of the top left corner in the plane
+		 */
+		final int x, y;
+		/**
+		 * Sums of the red, green and blue light received by each pixel
+		 */
+		final int[] red = new int[TILE*TILE];
+		final int[] green = new int[TILE*TILE];
+		final int[] blue = new int[TILE*TILE];
+		/**
+		 * Number of spots covering this tile
+		 */
+		int spots;
+		/**
+		 * The tone mapped light, transparent outside of the obstacles
+		 */
+		BufferedImage image;
+		boolean dirty = true;
+
+		Tile(int x, int y) {
+			this.x = x;
+			this.y = y;
+		}
+	}
+
+
+	/**
+	 * Brings the buffer up to date with a trace. Only the spots of the rays that
+	 * changed are splatted again, and only the tiles under obstacles that changed
+	 * are tone mapped again
+	 * @param result The result of a trace
+	 * @param components The components of the traced scene
+	 */
+	public void update(TraceResult result, List<GameComponent> components) {
+
+		//obstacles that moved, changed size or color, appeared or disappeared
+		IdentityHashMap<Obstacle, int[]> current = new IdentityHashMap<>();
+		walls.clear();
+
+		for (GameComponent comp : components) {
+			if (!(comp instanceof Obstacle))
+				continue;
+
+			Obstacle ob = (Obstacle)comp;
+			walls.add(ob);
+
+			int[] before = obstacles.remove(ob);
+			int[] after = area(ob);
+			current.put(ob, after);
+
+			if (before == null || before[0] != after[0]) {
+				if (before != null)
+					invalidate(before);
+				invalidate(after);
+			}
+		}
+		for (int[] removed : obstacles.values())
+			invalidate(removed);
+		obstacles = current;
+
+		//spots only in the old list are subtracted, spots only in the new list are added
+		ArrayList<int[]> updated = new ArrayList<>();
+		for (RayPath path : result.getPaths()) {
+			if (path.getLastHit() instanceof Obstacle) {
+				int x = (int)path.getX(path.size()-1);
+				int y = (int)path.getY(path.size()-1);
+				updated.add(new int[] {x, y, path.getRay().getColor().getRGB() & 0xFFFFFF});
+			}
+		}
+
+		ArrayList<int[]> added = new ArrayList<>(updated);
+		for (int[] spot : spots) {
+			if (!removeSpot(added, spot))
+				splat(spot, -1);
+		}
+		for (int[] spot : added)
+			splat(spot, 1);
+
+		spots = updated;
+	}
+	/**
+	 * @return The revision of the obstacle, followed by the area where it is drawn
+	 */
+	private int[] area(Obstacle ob) {
+		return new int[] {ob.getRevision(), (int)ob.getPosition().getX(), (int)ob.getPosition().getY(), (int)ob.getWidth(), (int)ob.getHeight()};
+	}
+	/**
+	 * Marks the tiles under an area as needing to be tone mapped again
+	 * @param area The revision of an obstacle and the area where it is drawn
+	 */
+	private void invalidate(int[] area) {
+		for (int ty = floorTile(area[2]); ty <= floorTile(area[2]+area[4]); ty++) {
+			for (int tx = floorTile(area[1]); tx <= floorTile(area[1]+area[3]); tx++) {
+				Tile tile = tiles.get(key(tx, ty));
+				if (tile != null)
+					tile.dirty = true;
+			}
+		}
+	}
+
+	private int floorTile(int v) {
+		return (int)Math.floor(v/(double)TILE);
+	}
+
+	private long key(int tx, int ty) {
+		return ((long)tx << 32) | (ty & 0xFFFFFFFFL);
+	}
+	/**
+	 * Removes one spot equal to the given one from a list
+	 * @return True if there was one
+	 */
+	private boolean removeSpot(ArrayList<int[]> list, int[] spot) {
+		for (int i = 0; i < list.size(); i++) {
+			int[] other = list.get(i);
+			if (other[0] == spot[0] && other[1] == spot[1] && other[2] == spot[2]) {
+				list.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Adds or subtracts the light of a spot in the tiles it covers.
+	 * The light fades from the color of the ray at the center to nothing at the radius
+	 * @param spot x, y and color of the spot
+	 * @param sign 1 to add the spot, -1 to remove it
+	 */
+	private void splat(int[] spot, int sign) {
+
+		int cx = spot[0];
+		int cy = spot[1];
+		int r = (spot[2] >> 16) & 0xFF, g = (spot[2] >> 8) & 0xFF, b = spot[2] & 0xFF;
+
+		for (int ty = floorTile(cy-RADIUS); ty <= floorTile(cy+RADIUS); ty++) {
+			for (int tx = floorTile(cx-RADIUS); tx <= floorTile(cx+RADIUS); tx++) {
+
+				Tile tile = tiles.get(key(tx, ty));
+				if (tile == null) {
+					tile = new Tile(tx*TILE, ty*TILE);
+					tiles.put(key(tx, ty), tile);
+				}
+
+				int minX = Math.max(tile.x, cx-RADIUS), maxX = Math.min(tile.x+TILE-1, cx+RADIUS);
+				int minY = Math.max(tile.y, cy-RADIUS), maxY = Math.min(tile.y+TILE-1, cy+RADIUS);
+
+				for (int y = minY; y <= maxY; y++) {
+					for (int x = minX; x <= maxX; x++) {
+
+						double dx = x+0.5-cx;
+						double dy = y+0.5-cy;
+						double f = 1 - Math.sqrt(dx*dx+dy*dy)/RADIUS;
+						if (f < 0)
+							continue;
+
+						int i = (y-tile.y)*TILE + (x-tile.x);
+						tile.red[i] += sign*(int)(r*f + 0.5);
+						tile.green[i] += sign*(int)(g*f + 0.5);
+						tile.blue[i] += sign*(int)(b*f + 0.5);
+					}
+				}
+
+				tile.spots += sign;
+				tile.dirty = true;
+
+				//a tile without light is not needed anymore
+				if (tile.spots == 0)
+					tiles.remove(key(tx, ty));
+			}
+		}
+	}
+	/**
+	 * Draws the light on the obstacles, the tiles that changed are tone mapped first
+	 * @param g The graphics object, in the coordinates of the plane
+	 * @param viewRec The part of the plane that is visible
+	 */
+	public void draw(Graphics2D g, Rectangle viewRec) {
+
+		for (Tile tile : tiles.values()) {
+			if (!viewRec.intersects(tile.x, tile.y, TILE, TILE))
+				continue;
+
+			if (tile.dirty)
+				toneMap(tile);
+
+			g.drawImage(tile.image, tile.x, tile.y, null);
+		}
+	}
+	/**
+	 * Adds the light of a tile to the color of the obstacles under it and compresses the result
+	 */
+	private void toneMap(Tile tile) {
+
+		if (tile.image == null)
+			tile.image = new BufferedImage(TILE, TILE, BufferedImage.TYPE_INT_ARGB);
+
+		int[] pixels = ((DataBufferInt)tile.image.getRaster().getDataBuffer()).getData();
+		Arrays.fill(pixels, 0);
+
+		for (Obstacle ob : walls) {
+			int[] area = obstacles.get(ob);
+
+			int minX = Math.max(tile.x, area[1]), maxX = Math.min(tile.x+TILE, area[1]+area[3]);
+			int minY = Math.max(tile.y, area[2]), maxY = Math.min(tile.y+TILE, area[2]+area[4]);
+			if (minX >= maxX || minY >= maxY)
+				continue;
+
+			int color = ob.getColor().getRGB();
+			int r0 = (color >> 16) & 0xFF, g0 = (color >> 8) & 0xFF, b0 = color & 0xFF;
+
+			for (int y = minY; y < maxY; y++) {
+				for (int x = minX; x < maxX; x++) {
+					int i = (y-tile.y)*TILE + (x-tile.x);
+					pixels[i] = 0xFF000000 | (compress(r0+tile.red[i]) << 16) | (compress(g0+tile.green[i]) << 8) | compress(b0+tile.blue[i]);
+				}
+			}
+		}
+
+		tile.dirty = false;
+	}
+	/**
+	 * Tone mapping curve: linear up to KNEE, then approaches 255 without reaching it
+	 */
+	private int compress(int v) {
+		if (v <= KNEE)
+			return v;
+
+		double over = v-KNEE;
+		return KNEE + (int)((255-KNEE)*over/(over+255-KNEE));
+	}
+}
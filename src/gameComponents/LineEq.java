@@ -6,7 +6,9 @@ import java.io.*;
  * 
  * Virtual Optics
  * <p>
- * This class models the equation of a line in a 2D plane
+ * This class models the equation of a line in a 2D plane.
+ * Ray tracing uses RaySegment objects instead, this class is kept
+ * so that levels and projects saved by older versions can still be loaded
  * </p>
  * @author Darrin Fong
  * @author Tieme Togola
@@ -1,6 +1,7 @@
 package gameComponents;
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -128,6 +129,7 @@ public class Mirror extends OpticalObject {
 	
 	public void setOrientation(int orientation) {
 		this.orientation = orientation;
+		changed();
 	}
 	/**
 	 * 
@@ -229,186 +231,39 @@ public class Mirror extends OpticalObject {
 			orientation = Q4;
 	}
 	/**
-	 * The arguments intersection and segment are not used here but they are in the subclass
-	 * @see gameComponents.OpticalObject#checkOrientation(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * Uses the bounding points to see if the incident ray segment is hitting
+	 * the reflective side of the mirror or its non-reflective side.
+	 * The reflective side faces the left of the direction from (b[0], b[1]) to (b[2], b[3]),
+	 * which matches the orientation values: NORTH when going right, EAST when going down, etc.
+	 * The argument t is not used here but it is in the subclass
+	 * @see gameComponents.OpticalObject#checkOrientation(gameComponents.RaySegment, double)
 	 */
 	@Override
-	public boolean checkOrientation(Point2D.Double p, Point2D.Double intersection, LineEq segment) {
-		//uses orientation value to see if incident ray segment is hitting the
-		//the reflective side of the mirror or its non-reflective side 
+	public boolean checkOrientation(RaySegment segment, double t) {
 		double[] b = getBounds();
-		double intercept = b[1]-getInclination()*b[0];
-		
-		switch (orientation) {
-		
-		case NORTH: if (p.getY() < getPosition().getY())
-						return true;
-					else return false;
-
-		case SOUTH: if (p.getY() > getPosition().getY())
-						return true;
-					else return false;
-		
-		case EAST: if (p.getX() > getPosition().getX())
-						return true;
-					else return false;
-
-		case WEST: if (p.getX() < getPosition().getX())
-						return true;
-					else return false;
-		
-		case Q1: if (p.getY() < getInclination()*p.getX()+intercept)
-					return true;
-				 else return false;
-					
-		case Q2: if (p.getY() < getInclination()*p.getX()+intercept)
-					return true;
-				 else return false;
-		
-		case Q3: if (p.getY() > getInclination()*p.getX()+intercept)
-					return true;
-				 else return false;
-		
-		case Q4: if (p.getY() > getInclination()*p.getX()+intercept)
-					return true;
-				 else return false;
-		
-		}
 
-		return false;
-	}
-	/**
-	 *
-	 * @see gameComponents.OpticalObject#setNormalLine(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
-	 */
-	@Override
-	public void setNormalLine(Point2D.Double intersection, Point2D.Double p1) {
-		/*
-		 * The normal line is perpendicular to the incident surface,
-		 * this is why the slope argument when constructing a LineEq object is
-		 * 1/inclination
-		 */
-		setNormalLine(new LineEq(-1/getInclination(), intersection.getX(), intersection.getY()));
+		//the ray must travel against the normal of the reflective side, (b[3]-b[1], b[0]-b[2])
+		return segment.getDirectionX()*(b[3]-b[1]) - segment.getDirectionY()*(b[2]-b[0]) < 0;
 	}
 	/**
 	 * 
-	 * @see gameComponents.OpticalObject#bend(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.OpticalObject#bend(gameComponents.RaySegment, double, gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double bend(Point2D.Double source, Point2D.Double intersec, LineEq incidentLine) {
-		
-		setNormalLine(intersec, source);
-		
-		//compute the slope of the reflected line and create a resultLine with that value
-		double resultSlope = reflection(incidentLine.getSlope(), getNormalLine().getSlope());
-		LineEq resultLine = new LineEq(resultSlope, intersec.getX(), intersec.getY());
-		
-		//these are the coordinates of the new end-point of the ray path that hit this optical object
-		//we use BIG to simulate a point located very far away
-		double farX = BIG;
-		double farY = BIG;
-		
-		//if both the resultLine and incidentLine are vertical, the ray bounces back in the opposite direction
-		if (infiniteSlope(resultSlope) && infiniteSlope(incidentLine.getSlope())){
-
-			farX = intersec.getX();
-			
-			if (intersec.getY() > source.getY())
-				farY *= -1;
-
-			return new Point2D.Double(farX, farY);
-		}	
-					
-		//if the resulting line is on the same side as the incident line, change the far point to adjust the line
-		if (checkSide(incidentLine, resultLine, source, intersec)) 
-			farX *= -1;
-			
-		//compute farY by plugging-in the value of farX in the equation of the resultLine
-		farY = resultLine.getSlope()*farX + resultLine.getIntercept();
-
-		return new Point2D.Double(farX, farY);
-	}
-	/**
-	 * 
-	 * @see gameComponents.OpticalObject#checkSide(gameComponents.LineEq, gameComponents.LineEq, java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
-	 */
-	@Override
-	public boolean checkSide(LineEq incidentLine, LineEq resultLine, Point2D.Double source, Point2D.Double intersec) { 
-		
-		if (infiniteSlope(getNormalLine().getSlope())) {
-			//if the source point and the far endpoint BIG are on the same side of the intersection
-			if ((source.getX() < intersec.getX() && BIG < intersec.getX()) || (source.getX() > intersec.getX() && BIG > intersec.getX()))
-				return true;
-		}
-		else if (infiniteSlope(incidentLine.getSlope()) && !(this instanceof CurvedMirror)) {	
-			if (orientation == Q3 || orientation == Q2)
-				return true;
-		}
-		else if (infiniteSlope(getInclination()) && orientation == WEST) {
-				return true;
-		}
-		else if (infiniteSlope(incidentLine.getSlope()) && infiniteSlope(getNormalLine().getSlope())) {
-			return false;
-		}
-		else {
-			
-			double sourceOnNormal = getNormalLine().getSlope()*source.getX()+getNormalLine().getIntercept();
-			double farOnResult = resultLine.getSlope()*BIG+resultLine.getIntercept();
-			double farOnNormal = getNormalLine().getSlope()*BIG+getNormalLine().getIntercept();
+	public void bend(RaySegment segment, double t, RaySegment result) {
+		double[] b = getBounds();
+		double length = distance(b[0], b[1], b[2], b[3]);
 
-			//if the slopes are approximately the same, the angle between them will be very small
-			if (Math.toDegrees(angleBetween(incidentLine.getSlope(), resultLine.getSlope())) < 1) {
-				if (source.getX() < intersec.getX())
-					return true;
-			}
-			//if the source point and the far endpoint BIG are on the same side of the source point
-			else if ((source.getY() < sourceOnNormal && farOnResult < farOnNormal)
-				|| (source.getY() > sourceOnNormal && farOnResult > farOnNormal)) {
-				return true;
-			}
-			
-		}
-		
-		return false;
+		reflect(segment, t, (b[3]-b[1])/length, (b[0]-b[2])/length, result);
 	}
 	/**
 	 * 
-	 * @see gameComponents.GameComponent#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.GameComponent#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
-
-		Point2D.Double inter;	//the intersection point
+	public double intersection(RaySegment segment) {
 		double[] b = getBounds();
-		
-		//the intercept of the line that goes through the axis of this mirror with the y-axis
-		double interceptMirror = b[1] - getInclination()*b[0];	
-
-		double interx;	//x coordinate of the intersection point
-		double intery;  //y coordinate of the intersection point
-		
-		if (infiniteSlope(getInclination()) && infiniteSlope(segment.getSlope())) 
-			return null;
-	
-		else if (infiniteSlope(segment.getSlope())) {	
-			interx = p1.getX();
-			intery = getInclination()*interx + interceptMirror;
-		}
-		else if (infiniteSlope(getInclination())) {
-			interx = getPosition().getX();
-			intery = segment.getSlope()*interx + segment.getIntercept();
-		}
-		else {				
-			interx = (segment.getIntercept()-interceptMirror)/(getInclination()-segment.getSlope());
-			intery = getInclination()*interx + interceptMirror;
-		}
-			
-		inter = new Point2D.Double(interx, intery);
-
-		//check that intersection is within the bounds of the mirror, and that it is not the same point as the source point (p1)
-		if (isWithinBounds(inter, b) && !approx(p1, inter))
-			return inter;
-		else return null;
+		return lineIntersection(segment, b[0], b[1], b[2], b[3]);
 	}
 	/**
 	 * 
@@ -458,6 +313,28 @@ public class Mirror extends OpticalObject {
 			g.drawLine((int)b[0]-dis, (int)b[1]-dis, (int)b[2]-dis, (int)b[3]-dis);
 		}
 	}
+	/**
+	 * 
+	 * @see gameComponents.OpticalObject#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putDouble(angle);
+		out.putDouble(length);
+		out.put((byte)orientation);
+	}
+	/**
+	 * 
+	 * @see gameComponents.OpticalObject#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		angle = in.getDouble();
+		length = in.getDouble();
+		orientation = in.get();
+	}
 	/**
 	 * 
 	 * @see gameComponents.GameComponent#getType()
@@ -1,6 +1,7 @@
 package gameComponents;
 
 import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -15,11 +16,6 @@ import java.awt.geom.Point2D;
 public abstract class OpticalObject extends GameComponent {
 	
 	private static final long serialVersionUID = -7410094189258732759L;
-	/**
-	 * The normal line is the line perpendicular to a surface
-	 * hit by a ray of light
-	 */
-	private LineEq normalLine;
 	/**
 	 * The slope of the axis of this optical object
 	 */
@@ -46,106 +42,93 @@ public abstract class OpticalObject extends GameComponent {
 	public void setInclination(double inclination) {
 		this.inclination = inclination;
 	}
-	
-	public LineEq getNormalLine() {
-		return normalLine;
-	}
-	
-	public void setNormalLine(LineEq normalLine) {
-		this.normalLine = normalLine;
+	/**
+	 * 
+	 * @see gameComponents.GameComponent#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putDouble(inclination);
 	}
 	/**
-	 * Different optical objects have different ways of setting their normal lines
-	 * @param intersection The point where a ray segment impacts this optical object
-	 * @param p1 The source point of the ray segment intersecting this optical object
+	 * 
+	 * @see gameComponents.GameComponent#read(java.nio.ByteBuffer)
 	 */
-	protected abstract void setNormalLine(Point2D.Double intersection, Point2D.Double p1);
-	
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		inclination = in.getDouble();
+	}
 	/**
-	 * Computes the angle between two slopes
-	 * @param m1 Slope of line1
-	 * @param m2 Slope of line2
-	 * @return The angle between the two slopes specified
+	 * Computes the ray segment reflected on this optical object
+	 * @param segment The incident ray segment
+	 * @param t Distance along the incident segment of the intersection point
+	 * @param nx X component of the normal of the surface at the intersection point, of length 1
+	 * @param ny Y component of the normal of the surface at the intersection point, of length 1
+	 * @param result Receives the reflected ray segment, starting at the intersection point.
+	 * It can be the incident segment itself
 	 */
-	protected double angleBetween(double m1, double m2) {
-		
-		//m1 needs to be greater than m2 for this formula to work, swap if necessary
-		if (m1 > m2) {
-			double temp = m1;
-			m1 = m2;
-			m2 = temp;
-		}
+	protected void reflect(RaySegment segment, double t, double nx, double ny, RaySegment result) {
 
-		double angle = Math.atan((m2-m1)/(1 + m1*m2));
+		//r = d - 2(d.n)n, the sign of the normal does not matter
+		double dot = segment.getDirectionX()*nx + segment.getDirectionY()*ny;
 
-		if (angle < 0)
-			angle += 180;
-
-		 return angle;
+		result.set(segment.getX(t), segment.getY(t),
+				segment.getDirectionX() - 2*dot*nx, segment.getDirectionY() - 2*dot*ny, BIG);
 	}
 	/**
-	 * Computes the slope of a ray reflected on this optical object
-	 * @param m1 Slope of the incident ray segment 
-	 * @param m2 Slope of the normal line of this optical object
-	 * @return The slope of the reflected ray segment
+	 * Computes the ray segment refracted by this optical object, with Snell's law.
+	 * The ray is reflected instead when the angle of incidence is bigger than the critical angle
+	 * (total internal reflection)
+	 * @param segment The incident ray segment
+	 * @param t Distance along the incident segment of the intersection point
+	 * @param nx X component of the normal of the surface at the intersection point, of length 1
+	 * @param ny Y component of the normal of the surface at the intersection point, of length 1
+	 * @param n1 The refraction index of the zone the ray comes from
+	 * @param n2 The refraction index of the zone the ray goes into
+	 * @param result Receives the refracted ray segment, starting at the intersection point.
+	 * It can be the incident segment itself
 	 */
-	protected double reflection(double m1, double m2) {
-		double incidentAngle;
+	protected void refract(RaySegment segment, double t, double nx, double ny, double n1, double n2, RaySegment result) {
 
-		if (infiniteSlope(m1) && infiniteSlope(m2)) {
-			return m2;
-		}
-		else if (infiniteSlope(m1)) {	
-			incidentAngle = Math.PI/2 - (Math.PI-Math.atan(m2));
-			return Math.tan(Math.PI-(Math.PI/2-2*incidentAngle));
-		}
-		else if (infiniteSlope(m2)) {
-			return Math.tan(Math.PI-Math.atan(m1));
+		double dx = segment.getDirectionX();
+		double dy = segment.getDirectionY();
+		double cosIncident = -(dx*nx + dy*ny);
+
+		//turn the normal against the incident ray
+		if (cosIncident < 0) {
+			nx = -nx;
+			ny = -ny;
+			cosIncident = -cosIncident;
 		}
-		
-		//m2 is the normal except if invert = true
-		boolean invert = false;		
-		
-		if (m1 > m2) {
-			double temp = m1;
-			m1 = m2;
-			m2 = temp;
-			invert = true;
+
+		double ratio = n1/n2;
+		double k = 1 - ratio*ratio*(1 - cosIncident*cosIncident);
+
+		//total internal reflection
+		if (k < 0) {
+			reflect(segment, t, nx, ny, result);
+			return;
 		}
 
-		incidentAngle = Math.atan((m2-m1)/(1 + m1*m2));
-		
-		if (invert)
-			return Math.tan(Math.atan(m1) - incidentAngle);
-		else 
-			return Math.tan(Math.atan(m2) + incidentAngle);
+		double m = ratio*cosIncident - Math.sqrt(k);
+
+		result.set(segment.getX(t), segment.getY(t), ratio*dx + m*nx, ratio*dy + m*ny, BIG);
 	}
 	/**
-	 * Determines the orientation of the ray segment that hit this optical object
-	 * by returning a point that is far away in that direction 
-	 * 
-	 * @param source The source point of the ray segment that hit this optical object
-	 * @param intersec The intersection point of the ray segment and this optical object
+	 * Computes the path of a ray of light after it hits this optical object
 	 * @param segment The ray segment that hit this optical object
-	 * @return The point at the end of the Ray object path that hit this optical object
-	 */
-	protected abstract Point2D.Double bend(Point2D.Double source, Point2D.Double intersec, LineEq segment);
-	/**
-	 * Checks if the reflected/refracted ray is on the correct side of the normal line.
-	 * (Varies from one optical object to another)
-	 * @param incidentLine
-	 * @param resultLine
-	 * @param source The source point of the ray segment that hit this optical object
-	 * @param intersec The intersection point of the ray segment and this optical object
-	 * @return False if the reflected/refracted ray is on the correct side, true otherwise
+	 * @param t Distance along the segment of the intersection point
+	 * @param result Receives the next segment of the path of the ray, starting at the intersection point.
+	 * It can be the incident segment itself
 	 */
-	protected abstract boolean checkSide(LineEq incidentLine, LineEq resultLine, Point2D.Double source, Point2D.Double intersec);
+	protected abstract void bend(RaySegment segment, double t, RaySegment result);
 	/**
 	 * Determines whether the incident ray segment will interact with the optical surface or not
-	 * @param source The source point of the ray segment that hit this optical object
-	 * @param intersection The intersection point of the ray segment and this optical object
 	 * @param segment The ray segment that hit this optical object
+	 * @param t Distance along the segment of the intersection point
 	 * @return True if the ray can interact with this side of the optical object, false otherwise
 	 */
-	protected abstract boolean checkOrientation(Point2D.Double source, Point2D.Double intersection, LineEq segment);
+	protected abstract boolean checkOrientation(RaySegment segment, double t);
 }
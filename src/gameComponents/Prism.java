@@ -1,6 +1,7 @@
 package gameComponents;
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -35,18 +36,6 @@ public class Prism extends Lens {
 	 * The third vertex of the triangular shape
 	 */
 	private Point2D.Double vertex3;
-	/**
-	 * The line segment between vertices 1 and 2
-	 */
-	private LineEq line1;
-	/**
-	 * The line segment between vertices 2 and 3
-	 */
-	private LineEq line2;	
-	/**
-	 * The line segment between vertices 3 and 1
-	 */
-	private LineEq line3;
 	/**
 	 * The angle of rotation of this prism
 	 */
@@ -78,10 +67,6 @@ public class Prism extends Lens {
 		shape.addPoint((int)vertex1.getX(), (int)vertex1.getY());
 		shape.addPoint((int)vertex2.getX(), (int)vertex2.getY());
 		shape.addPoint((int)vertex3.getX(), (int)vertex3.getY());
-		
-		line1 = new LineEq(vertex1, vertex2);
-		line2 = new LineEq(vertex2, vertex3);
-		line3 = new LineEq(vertex3, vertex1);
 	}
 	/**
 	 * Initializes the shape with the vertices
@@ -179,10 +164,6 @@ public class Prism extends Lens {
 	        initPolygon();
 	        initBox();
 	        side = vertex1.distance(vertex2);
-	        
-	        line1 = new LineEq(vertex1, vertex2);
-			line2 = new LineEq(vertex2, vertex3);
-			line3 = new LineEq(vertex3, vertex1);
 	}
 	
 	
@@ -194,11 +175,6 @@ public class Prism extends Lens {
 		vertex1.setLocation(vertex1.getX()+dx1, vertex1.getY()+dy1);
 		vertex2.setLocation(vertex2.getX()+dx2, vertex2.getY()+dy2);
 		vertex3.setLocation(vertex3.getX()+dx3, vertex3.getY()+dy3);
-		
-		//update the lines between the vertices
-		line1 = new LineEq(vertex1, vertex2);	
-		line2 = new LineEq(vertex2, vertex3);
-		line3 = new LineEq(vertex3, vertex1);
 	}
 	
 	public Point2D.Double getVertex1() {
@@ -213,130 +189,94 @@ public class Prism extends Lens {
 		return vertex3;
 	}
 	/**
-	 * 
-	 * @see gameComponents.Lens#setNormalLine(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
+	 * The point is on the side to which it is the closest
+	 * @return 1, 2 or 3 for the side from vertex1, vertex2 or vertex3 to the next vertex
+	 * @see gameComponents.Lens#surfaceAt(double, double)
 	 */
 	@Override
-	public void setNormalLine(Point2D.Double intersection, Point2D.Double p1) {
-
-		//picks the line to which the intersection point is the closest
-		
-		if (intersection.distance(vertex1) < intersection.distance(vertex3)
-				&& intersection.distance(vertex2) < intersection.distance(vertex3))
-			
-			setNormalLine(new LineEq(-1/line1.getSlope(), intersection.getX(), intersection.getY()));
-		
-		else if (intersection.distance(vertex2) < intersection.distance(vertex1)
-				&& intersection.distance(vertex3) < intersection.distance(vertex1))
-			
-			setNormalLine(new LineEq(-1/line2.getSlope(), intersection.getX(), intersection.getY()));
+	protected int surfaceAt(double x, double y) {
+		int side = 1;
+		double closest = distanceToSide(x, y, vertex1, vertex2);
 		
-		else if (intersection.distance(vertex3) < intersection.distance(vertex2)
-				&& intersection.distance(vertex1) < intersection.distance(vertex2))
-			
-			setNormalLine(new LineEq(-1/line3.getSlope(), intersection.getX(), intersection.getY()));
+		if (distanceToSide(x, y, vertex2, vertex3) < closest) {
+			side = 2;
+			closest = distanceToSide(x, y, vertex2, vertex3);
+		}
+		if (distanceToSide(x, y, vertex3, vertex1) < closest)
+			side = 3;
+
+		return side;
+	}
+	/**
+	 * 
+	 * @see gameComponents.Lens#normalX(int, double, double)
+	 */
+	@Override
+	protected double normalX(int surface, double x, double y) {
+		return sideNormal(surface, true);
 	}
 	/**
 	 * 
-	 * @see gameComponents.Lens#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.Lens#normalY(int, double, double)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
+	protected double normalY(int surface, double x, double y) {
+		return sideNormal(surface, false);
+	}
+	/**
+	 * Computes the normal of a side of the triangle, pointing away from its center
+	 * @param side 1, 2 or 3 as returned by surfaceAt()
+	 * @param xComponent True for the x component of the normal, false for the y component
+	 * @return The requested component of the normal, of length 1
+	 */
+	private double sideNormal(int side, boolean xComponent) {
+		Point2D.Double a = (side == 1) ? vertex1 : (side == 2) ? vertex2 : vertex3;
+		Point2D.Double b = (side == 1) ? vertex2 : (side == 2) ? vertex3 : vertex1;
 
-		Point2D.Double inter;	//intersection point	
-		double interx;	//x coordinate of the intersection point
-		
-		//potential intersection points
-		Point2D.Double inter1;
-		Point2D.Double inter2;
-		Point2D.Double inter3;
-		
-		if (infiniteSlope(segment.getSlope())) {
-			
-			interx = p1.getX();
-			inter1 = new Point2D.Double(interx, line1.getSlope()*interx+line1.getIntercept());
-			inter2 = new Point2D.Double(interx, line2.getSlope()*interx+line2.getIntercept());
-			inter3 = new Point2D.Double(interx, line3.getSlope()*interx+line3.getIntercept());
-			
-		}
-		else {
-			
-			double tempx;
-			
-			//compute the potential intersection points of the ray segment with...
-			
-			//line1...
-			if (infiniteSlope(line1.getSlope()))
-				inter1 = new Point2D.Double(vertex1.getX(), segment.getSlope()*vertex1.getX() + segment.getIntercept());
-			else {
-				
-				tempx = (segment.getIntercept()-line1.getIntercept())/(line1.getSlope()-segment.getSlope());
-				inter1 = new Point2D.Double(tempx, segment.getSlope()*tempx + segment.getIntercept());
-			}
-			
-			//line2...
-			if (infiniteSlope(line2.getSlope()))
-				inter2 = new Point2D.Double(vertex2.getX(), segment.getSlope()*vertex2.getX() + segment.getIntercept());
-			else {
-				
-				tempx = (segment.getIntercept()-line2.getIntercept())/(line2.getSlope()-segment.getSlope());
-				inter2 = new Point2D.Double(tempx, segment.getSlope()*tempx + segment.getIntercept());
-			}
-			
-			//and line3
-			if (infiniteSlope(line3.getSlope()))
-				inter3 = new Point2D.Double(vertex3.getX(), segment.getSlope()*vertex3.getX() + segment.getIntercept());
-			else {
-				
-				tempx = (segment.getIntercept()-line3.getIntercept())/(line3.getSlope()-segment.getSlope());
-				inter3 = new Point2D.Double(tempx, segment.getSlope()*tempx + segment.getIntercept());
-			}
-		}
-		
-		/*for each potential intersection point, check if it is valid, i.e. if it is in the same quadrant as 
-		 * the incident ray segment, if it is not the same as the source point p1, and if it is within the bounds
-		 * of the side of the shape it intersects (+-1 to account for imprecisions)
-		 * If the tested point is invalid, set it to (BIG, BIG) and the rest of the method will ignore it 
-		 */
-		//check inter1 with line1 from vertex1 to vertex2
-		if (!sameQuadrant(p1, p2, inter1) || approx(p1, inter1) 
-				|| !(inter1.getX() < Math.max(vertex1.getX(), vertex2.getX())+1 && inter1.getX() > Math.min(vertex1.getX(), vertex2.getX())-1 && 
-				inter1.getY() <= Math.max(vertex1.getY(), vertex2.getY())+1 && inter1.getY() >= Math.min(vertex1.getY(), vertex2.getY())-1))
-			
-			inter1 = new Point2D.Double(BIG, BIG);
-		
-		//check inter2 with line2 from vertex2 to vertex3
-		if (!sameQuadrant(p1, p2, inter2) || approx(p1, inter2) 
-				|| !(inter2.getX() <= Math.max(vertex2.getX(), vertex3.getX())+1 && inter2.getX() >= Math.min(vertex2.getX(), vertex3.getX())-1 && 
-				inter2.getY() <= Math.max(vertex2.getY(), vertex3.getY())+1 && inter2.getY() >= Math.min(vertex2.getY(), vertex3.getY())-1))
-			
-			inter2 = new Point2D.Double(BIG, BIG);
-		
-		//check inter3 with line3 from vertex3 to vertex1
-		if (!sameQuadrant(p1, p2, inter3) || approx(p1, inter3) 
-				|| !(inter3.getX() <= Math.max(vertex3.getX(), vertex1.getX())+1 && inter3.getX() >= Math.min(vertex3.getX(), vertex1.getX())-1 && 
-				inter3.getY() <= Math.max(vertex3.getY(), vertex1.getY())+1 && inter3.getY() >= Math.min(vertex3.getY(), vertex1.getY())-1))
-			
-			inter3 = new Point2D.Double(BIG, BIG); 
-		
-		//keep the intersection point that is closest to the source point p1
-		Point2D.Double closest;
-		
-		if (p1.distance(inter1) < p1.distance(inter2))
-			closest = inter1;
-		else closest = inter2;
-		
-		if (p1.distance(inter3) < p1.distance(closest))
-			closest = inter3;
-		
-		inter = closest;
-		
-		if (inter.equals(new Point2D.Double(BIG, BIG))) {
-			leaving = false;
-			return null;
+		double ex = b.getX()-a.getX();
+		double ey = b.getY()-a.getY();
+		double length = Math.hypot(ex, ey);
+		double nx = ey/length;
+		double ny = -ex/length;
+
+		//the normal points away from the center of the triangle
+		double cx = (vertex1.getX()+vertex2.getX()+vertex3.getX())/3;
+		double cy = (vertex1.getY()+vertex2.getY()+vertex3.getY())/3;
+
+		if (nx*(a.getX()-cx) + ny*(a.getY()-cy) < 0) {
+			nx = -nx;
+			ny = -ny;
 		}
-		else return inter;
 
+		return xComponent ? nx : ny;
+	}
+	/**
+	 * Computes the distance from a point to the line through a side of the triangle
+	 * @param x X coordinate of the point
+	 * @param y Y coordinate of the point
+	 * @param a First vertex of the side
+	 * @param b Second vertex of the side
+	 * @return The distance
+	 */
+	private double distanceToSide(double x, double y, Point2D.Double a, Point2D.Double b) {
+		double ex = b.getX()-a.getX();
+		double ey = b.getY()-a.getY();
+
+		return Math.abs(ex*(y-a.getY()) - ey*(x-a.getX()))/Math.hypot(ex, ey);
+	}
+	/**
+	 * 
+	 * @see gameComponents.Lens#intersection(gameComponents.RaySegment)
+	 */
+	@Override
+	public double intersection(RaySegment segment) {
+
+		//keep the intersection point that is closest to the source point
+		double t = lineIntersection(segment, vertex1.getX(), vertex1.getY(), vertex2.getX(), vertex2.getY());
+		t = Math.min(t, lineIntersection(segment, vertex2.getX(), vertex2.getY(), vertex3.getX(), vertex3.getY()));
+		t = Math.min(t, lineIntersection(segment, vertex3.getX(), vertex3.getY(), vertex1.getX(), vertex1.getY()));
+
+		return t;
 	}
 	/**
 	 * 
@@ -359,6 +299,34 @@ public class Prism extends Lens {
 		//draw the triangular shape representing the prism object
 		g.drawPolygon(shape);
 	}
+	/**
+	 * 
+	 * @see gameComponents.Lens#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putDouble(side);
+		out.putDouble(angle);
+		for (Point2D.Double vertex : new Point2D.Double[] {vertex1, vertex2, vertex3}) {
+			out.putDouble(vertex.getX());
+			out.putDouble(vertex.getY());
+		}
+	}
+	/**
+	 * 
+	 * @see gameComponents.Lens#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		side = in.getDouble();
+		angle = in.getDouble();
+		vertex1 = new Point2D.Double(in.getDouble(), in.getDouble());
+		vertex2 = new Point2D.Double(in.getDouble(), in.getDouble());
+		vertex3 = new Point2D.Double(in.getDouble(), in.getDouble());
+		initPolygon();
+	}
 	/**
 	 * 
 	 * @see gameComponents.Lens#getType()
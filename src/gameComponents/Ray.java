@@ -1,6 +1,7 @@
 package gameComponents;
 import java.awt.*;
 import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -26,6 +27,10 @@ public class Ray extends GameComponent {
 	 * in the path
 	 */
 	private ArrayList<Integer> hitComponent = new ArrayList<>();
+	/**
+	 * The last path computed for this ray by a Scene, this is what is drawn
+	 */
+	private transient RayPath trace;
 	/**
 	 * Tells if the light ray is on or off
 	 */
@@ -122,6 +127,7 @@ public class Ray extends GameComponent {
 			path.add(getPosition());
 		}
 		this.on = on;
+		changed();
 	}
 	/**
 	 * 
@@ -130,7 +136,10 @@ public class Ray extends GameComponent {
 	@Override
 	public void setSelected(boolean selected) {
 		super.setSelected(selected);
-		if (selected) on = true;
+		if (selected && !on) {
+			on = true;
+			changed();
+		}
 	}
 	
 	public double getX(int index) {
@@ -145,6 +154,14 @@ public class Ray extends GameComponent {
 		return radius;
 	}
 	
+	public RayPath getTrace() {
+		return trace;
+	}
+	
+	public void setTrace(RayPath trace) {
+		this.trace = trace;
+	}
+	
 	public double getAngle() {
 		return angle;
 	}
@@ -165,9 +182,31 @@ public class Ray extends GameComponent {
 		else if (angle == 360)
 			angle = 0;
 				
-		int xEnd = (int)(getX(0) + (BIG * Math.sin(Math.toRadians(angle))));	//the x coordinate of the end point of the ray
-		int yEnd = (int)(getY(0) - (BIG * Math.cos(Math.toRadians(angle))));	//the y coordinate of the end point of the ray
-		path.set(1, new Point2D.Double(xEnd, yEnd));	//setting source endpoint position
+		path.set(1, getFarPoint());	//setting source endpoint position
+		changed();
+	}
+	/**
+	 * @return The first segment of the ray, from its source in the direction of its angle
+	 */
+	public RaySegment getFirstSegment() {
+		RaySegment segment = new RaySegment();
+		firstSegment(segment);
+		return segment;
+	}
+	/**
+	 * Same as getFirstSegment(), but reuses the given segment
+	 */
+	void firstSegment(RaySegment result) {
+		result.set(getPosition().getX(), getPosition().getY(), 
+				Math.sin(Math.toRadians(angle)), -Math.cos(Math.toRadians(angle)), BIG);
+	}
+	/**
+	 * @return The end point of the first segment of the ray, very far away in the direction of its angle
+	 */
+	public Point2D.Double getFarPoint() {
+		int xEnd = (int)(getPosition().getX() + (BIG * Math.sin(Math.toRadians(angle))));	//the x coordinate of the end point of the ray
+		int yEnd = (int)(getPosition().getY() - (BIG * Math.cos(Math.toRadians(angle))));	//the y coordinate of the end point of the ray
+		return new Point2D.Double(xEnd, yEnd);
 	}
 	/**
 	 * 
@@ -178,210 +217,93 @@ public class Ray extends GameComponent {
 		
 	}
 	/**
-	 * Goes through the path and checks whether each segment intersects 
-	 * a component in the list of active components on the plane.
-	 * If so, apply the appropriate optical formula to change the direction of the ray.
+	 * Traces this ray through the list of active components with a Scene
+	 * and keeps the resulting path. Targets and obstacles hit by the ray are notified.
 	 * @param components List of active components
 	 */
 	public void impact(ArrayList<GameComponent> components) {
 		if (!on)
 			return;
 		
-		rotate(0);			//refresh orientation of the ray
-		int targetHit = -1;	//index of the Target object that has been hit by this ray
+		trace = new Scene(components).trace(this);
 
-		//refresh the list of hit components
-		hitComponent.clear();	
-		hitComponent.add(0);
-		hitComponent.add(-1);
-		hitComponent.set(0, findIndex(components));	//assign correct index of this ray in the list of components
-
-		//go through the path
-		for (int i = 1, limit = 0; i < path.size(); i++, limit++) {	
-
-			//set a limit to prevent infinite loops
-			if (limit == 1001) {
-				path.remove(i);
-				hitComponent.remove(i);
-				break;
-			}
-
-			//remove points after the latest intersection
-			while (i+1 < path.size()) 
-				path.remove(i+1);
-			
-			//this is the segment that is passed to the intersection method of each component to check if there is an impact
-			LineEq currentSegment = new LineEq(path.get(i-1), path.get(i));	
-
-			//go through the list of game components
-			for (int j = 0; j < components.size(); j++) {
-				
-				//compute and save the intersection
-				Point2D.Double intersec = components.get(j).intersection(path.get(i-1), path.get(i), currentSegment);
-				
-				if (intersec == null) 
-					continue;
-									
-				//if the intersection point is not the same as the source point and is in the direction of the current segment
-				//then proceed
-				if (!approx(intersec, path.get(i-1)) && sameQuadrant(path.get(i-1), path.get(i), intersec))	{ 
-
-					//set the last point to the intersection point
-					path.set(i, intersec);
-					hitComponent.set(i, j);	//ith point in path hit jth component
-
-					//remove points after the latest intersection
-					while (i+1 < path.size()) {
-						path.remove(i+1);
-						hitComponent.remove(i+1);
-					}
-
-					//the game component that was hit is an optical object, bend the path accordingly
-					if (components.get(j) instanceof OpticalObject) {
-						
-						OpticalObject currentOb = (OpticalObject)components.get(j);
-								
-						//check orientation, if nonreflective or nonrefractive, do not call bend
-						if (currentOb.checkOrientation(path.get(i-1), intersec, currentSegment)) {
-							path.add(currentOb.bend(path.get(i-1), intersec, currentSegment)); 
-							hitComponent.add(-1);
-						}
-					}
-				}	
-			}
-			
-			if (hitComponent.get(i) != -1)
-				if (components.get(hitComponent.get(i)) instanceof Target) 
-					targetHit = hitComponent.get(i);
+		//copy the trace in the path and in the list of hit components
+		path.clear();
+		hitComponent.clear();
+		for (int i = 0; i < trace.size(); i++) {
+			path.add(trace.getPoint(i));
+			hitComponent.add(findIndex(components, trace.getHit(i)));
 		}
+		hitComponent.set(0, findIndex(components, this));
 
-		if (targetHit >= 0)
-			((Target)components.get(targetHit)).react(getColor());
-		
-		//set collisions for the obstacles lighting
-		if (hitComponent.get(hitComponent.size()-1) != -1) {
-			for (int i = 0; i < path.size(); i++) {	
-				if (components.get(hitComponent.get(i)) instanceof Obstacle)	
-					((Obstacle)components.get(hitComponent.get(i))).collision(path.get(i), this); 
-			}
-		}
+		if (trace.getLastHit() instanceof Target && ((Target)trace.getLastHit()).accepts(getColor()))
+			((Target)trace.getLastHit()).setHit(true);
+		else if (trace.getLastHit() instanceof Obstacle)
+			((Obstacle)trace.getLastHit()).collision(trace);
 	}
 	/**
-	 * Finds the index of this Ray object in the list of active components
+	 * Finds the index of a component in the list of active components
 	 * @param components List of active game components
-	 * @return The index of this ray
+	 * @param component The component to find
+	 * @return The index of the component, -1 if it is not in the list
 	 */
-	private int findIndex(ArrayList<GameComponent> components) {
+	private int findIndex(ArrayList<GameComponent> components, GameComponent component) {
 		int index = -1;
 		for (int i = 0; i < components.size(); i++) {
-			if (this == components.get(i))	//checking for a reference match
+			if (component == components.get(i))	//checking for a reference match
 				index = i;
 		}
 		
 		return index;
 	}
 	/**
-	 * 
-	 * @see gameComponents.GameComponent#sameQuadrant(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
-	 */
-	@Override
-	public boolean sameQuadrant(Point2D.Double origin, Point2D.Double end, Point2D.Double intersec) {	
-		
-		Point.Double p1 = new Point.Double((end.getX()-origin.getX()), (end.getY()-origin.getY()));
-		Point.Double p2 = new Point.Double((intersec.getX()-origin.getX()), (intersec.getY()-origin.getY()));
-		
-		int x1 = (p1.getX() >= 0) ? 1 : -1;
-		int x2 = (p2.getX() >= 0) ? 1 : -1;
-		int y1 = (p1.getY() >= 0) ? 1 : -1;
-		int y2 = (p2.getY() >= 0) ? 1 : -1;
-
-		if (!isWithinBounds(intersec, origin, end)) 
-			return false;
-		else if (x1 == x2 && y1 == y2) 
-			return true;
-		else 
-			return false;
-	}
-	/**
-	 * 
-	 * @see gameComponents.GameComponent#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * A ray segment starting inside the light source does not hit it
+	 * @see gameComponents.GameComponent#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
+	public double intersection(RaySegment segment) {
 	
-		Point2D.Double inter;	//intersection point
-		double interx, intery;	//coordinates of the intersection point
-		
-		if (p1.distance(h, k) < radius)
-			return null;
+		if (distance(segment.getOriginX(), segment.getOriginY(), h, k) < radius)
+			return RaySegment.MISS;
 		
-		if (infiniteSlope(segment.getSlope())) {
-			
-			interx = p1.getX();
-			
-			//compute solutions for vertical line 
-			double[] circleSols = circSolsX(p1.getX(), radius, h, k);
+		double t = circleIntersection(segment, radius, h, k);
 
-			if ((circleSols[0]+"").equals("NaN"))
-				return null;
-			
-			double closeY = circleSols[0];
-			double farY = circleSols[1];
-			
-			//keep the solution closest to source point
-			if (p1.distance(p1.getX(), farY) < p1.distance(p1.getX(), closeY)) {
-				double temp = closeY;
-				closeY = farY;
-				farY = temp;
-			}
-			
-			intery = closeY;
-			
-		}
-		else {	
-				
-			ArrayList<Point2D.Double> solutions = circSolsGeneral(segment, radius, h, k);
-
-			if (solutions == null)
-				return null;
-				
-			Point2D.Double closeSol = solutions.get(0);
-			Point2D.Double farSol = solutions.get(1);
-			double closeDis = closeSol.distance(p1);
-			double farDis = farSol.distance(p1);
-					
-			//keep the closest solution
-			if (closeDis > farDis) {
-				Point2D.Double temp = (Point2D.Double)closeSol.clone();	
-				closeSol = (Point2D.Double)farSol.clone();
-				farSol = (Point2D.Double)temp;		
-			}
+		if (Double.isNaN(t))
+			return RaySegment.MISS;
 
-			interx = closeSol.getX();
-			intery = closeSol.getY();
-		}
-
-		inter = new Point2D.Double(interx, intery);
-		return inter;
+		//keep the closest solution
+		if (segment.contains(t))
+			return t;
+		
+		t = otherCircleIntersection(segment, h, k, t);
+		
+		if (segment.contains(t))
+			return t;
+		else return RaySegment.MISS;
 	}
 	/**
 	 * 
 	 * @see gameComponents.GameComponent#draw(java.awt.Graphics2D, java.awt.Rectangle)
 	 */
 	@Override
-	public void draw(Graphics2D g0, Rectangle viewRec) {	//always draw rays, dont need to check viewRec
+	public void draw(Graphics2D g0, Rectangle viewRec) {
+		//if neither the source nor the path is visible to the user, do not draw
+		if (trace != null && !getBox().intersects(viewRec) && !trace.getBounds().intersects(viewRec))
+			return;
+		
 		Graphics2D g = (Graphics2D)g0.create();
 
-		int[] x = new int[size()];	//x coordinates of the path's points
-		int[] y = new int[size()];  //y coordinates of the path's points
+		int n = (trace != null) ? trace.size() : size();	//draw the traced path, or the bare path if not traced yet
+		int[] x = new int[n];	//x coordinates of the path's points
+		int[] y = new int[n];  //y coordinates of the path's points
 
 		//fill in the arrays with the values in path
-		for (int j = 0; j < size(); j++) {
-			x[j] = (int)getX(j);
-			y[j] = (int)getY(j);
+		for (int j = 0; j < n; j++) {
+			x[j] = (int)((trace != null) ? trace.getX(j) : getX(j));
+			y[j] = (int)((trace != null) ? trace.getY(j) : getY(j));
 		}
 
-		g.drawPolyline(x,  y, size());	//draws all the segments of the ray path
+		g.drawPolyline(x,  y, n);	//draws all the segments of the ray path
 
 		g.setColor(Color.BLACK);
 		g.fillOval((int)(x[0]-radius), (int)(y[0]-radius), (int)radius*2, (int)radius*2);
@@ -392,6 +314,40 @@ public class Ray extends GameComponent {
 			g.drawOval((int)(h-radius), (int)(k-radius), (int)radius*2, (int)radius*2);
 		}
 	}
+	/**
+	 * 
+	 * @see gameComponents.GameComponent#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.put((byte)(on ? 1 : 0));
+		out.putDouble(angle);
+		out.putDouble(radius);
+		out.putDouble(h);
+		out.putDouble(k);
+	}
+	/**
+	 * 
+	 * @see gameComponents.GameComponent#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		on = in.get() != 0;
+		angle = in.getDouble();
+		radius = in.getDouble();
+		h = in.getDouble();
+		k = in.getDouble();
+		
+		//the path is traced again, until then it is the first segment of the ray
+		path.clear();
+		path.add(getPosition());
+		path.add(on ? getFarPoint() : getPosition());
+		hitComponent.clear();
+		hitComponent.add(0);
+		hitComponent.add(-1);
+	}
 	/**
 	 * 
 	 * @see gameComponents.GameComponent#getType()
@@ -0,0 +1,52 @@
+package gameComponents;
+
+import java.awt.geom.Point2D;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class holds the nearest intersection of a ray segment
+ * with the components of a Scene, as found by Scene.closestHit()
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class RayHit {
+
+	/**
+	 * The component that was hit
+	 */
+	private final GameComponent component;
+	/**
+	 * The intersection point
+	 */
+	private final double x, y;
+	/**
+	 * Distance of the intersection along the ray segment, from its origin
+	 */
+	private final double distance;
+
+
+	RayHit(GameComponent component, Point2D.Double point, double distance) {
+		this.component = component;
+		this.x = point.getX();
+		this.y = point.getY();
+		this.distance = distance;
+	}
+
+
+	public GameComponent getComponent() {
+		return component;
+	}
+	/**
+	 * @return A copy of the intersection point
+	 */
+	public Point2D.Double getPoint() {
+		return new Point2D.Double(x, y);
+	}
+
+	public double getDistance() {
+		return distance;
+	}
+}
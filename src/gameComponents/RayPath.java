@@ -0,0 +1,100 @@
+package gameComponents;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class holds the trajectory computed for one Ray object
+ * by a Scene. It is immutable: the points and the components
+ * hit along the path are copied when the path is created
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class RayPath {
+
+	/**
+	 * The ray that produced this path
+	 */
+	private final Ray ray;
+	/**
+	 * X coordinates of the points of the path
+	 */
+	private final double[] x;
+	/**
+	 * Y coordinates of the points of the path
+	 */
+	private final double[] y;
+	/**
+	 * hits[i] is the component hit by the ith point of the path,
+	 * null if the point did not hit anything
+	 */
+	private final GameComponent[] hits;
+
+
+	/**
+	 * Copies the first size points of the given arrays
+	 */
+	RayPath(Ray ray, double[] x, double[] y, GameComponent[] hits, int size) {
+		this.ray = ray;
+		this.x = Arrays.copyOf(x, size);
+		this.y = Arrays.copyOf(y, size);
+		this.hits = Arrays.copyOf(hits, size);
+	}
+
+
+	public Ray getRay() {
+		return ray;
+	}
+	/**
+	 * @return The number of points in this path
+	 */
+	public int size() {
+		return x.length;
+	}
+
+	public double getX(int index) {
+		return x[index];
+	}
+
+	public double getY(int index) {
+		return y[index];
+	}
+	/**
+	 * @param index Index of a point of the path
+	 * @return A copy of the point at the given index
+	 */
+	public Point2D.Double getPoint(int index) {
+		return new Point2D.Double(x[index], y[index]);
+	}
+	/**
+	 * @param index Index of a point of the path
+	 * @return The component hit by the point at the given index, null if there is none
+	 */
+	public GameComponent getHit(int index) {
+		return hits[index];
+	}
+	/**
+	 * @return The component on which the path ends, null if the ray goes on to infinity
+	 */
+	public GameComponent getLastHit() {
+		return hits[hits.length-1];
+	}
+	/**
+	 * @return The smallest rectangle holding all the points of the path
+	 */
+	public Rectangle2D.Double getBounds() {
+		double minX = x[0], minY = y[0], maxX = x[0], maxY = y[0];
+		for (int i = 1; i < x.length; i++) {
+			minX = Math.min(minX, x[i]);
+			minY = Math.min(minY, y[i]);
+			maxX = Math.max(maxX, x[i]);
+			maxY = Math.max(maxY, y[i]);
+		}
+		return new Rectangle2D.Double(minX, minY, maxX-minX, maxY-minY);
+	}
+}
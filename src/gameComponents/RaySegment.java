@@ -0,0 +1,124 @@
+package gameComponents;
+
+import java.awt.geom.Point2D;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class models one straight segment of the path of a ray of light.
+ * It is an origin point, a direction of length 1 and a range of distances:
+ * the points of the segment are origin + t*direction for tMin &lt; t &lt;= tMax.
+ * Unlike a slope, a direction works the same way for vertical segments.
+ * The tracer reuses its segments from one bounce to the next, so only
+ * classes of this package can change them
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class RaySegment {
+
+	/**
+	 * Intersections closer than this distance to the origin are ignored,
+	 * so a segment leaving a surface does not hit that surface again
+	 */
+	public static final double EPSILON = 1e-6;
+	/**
+	 * Distance returned by the intersection methods when a segment does not hit a component
+	 */
+	public static final double MISS = Double.POSITIVE_INFINITY;
+
+	private double originX;
+	private double originY;
+	private double directionX;
+	private double directionY;
+	private final double tMin = EPSILON;
+	private double tMax;
+
+
+	RaySegment() {
+		
+	}
+	/**
+	 * @param originX X coordinate of the origin point
+	 * @param originY Y coordinate of the origin point
+	 * @param directionX X component of the direction, it does not need to be of length 1
+	 * @param directionY Y component of the direction, it does not need to be of length 1
+	 * @param tMax Length of the segment
+	 */
+	public RaySegment(double originX, double originY, double directionX, double directionY, double tMax) {
+		set(originX, originY, directionX, directionY, tMax);
+	}
+	/**
+	 * Creates the segment from a source point to an end point
+	 */
+	public RaySegment(Point2D.Double source, Point2D.Double end) {
+		this(source.getX(), source.getY(), end.getX()-source.getX(), end.getY()-source.getY(), source.distance(end));
+	}
+
+
+	/**
+	 * Changes this segment, with the same parameters as the constructor
+	 */
+	void set(double originX, double originY, double directionX, double directionY, double tMax) {
+		double length = Math.hypot(directionX, directionY);
+
+		this.originX = originX;
+		this.originY = originY;
+		this.directionX = directionX/length;
+		this.directionY = directionY/length;
+		this.tMax = tMax;
+	}
+
+	public double getOriginX() {
+		return originX;
+	}
+
+	public double getOriginY() {
+		return originY;
+	}
+
+	public double getDirectionX() {
+		return directionX;
+	}
+
+	public double getDirectionY() {
+		return directionY;
+	}
+
+	public double getTMin() {
+		return tMin;
+	}
+
+	public double getTMax() {
+		return tMax;
+	}
+	/**
+	 * @param t A distance from the origin
+	 * @return X coordinate of the point at distance t
+	 */
+	public double getX(double t) {
+		return originX + t*directionX;
+	}
+	/**
+	 * @param t A distance from the origin
+	 * @return Y coordinate of the point at distance t
+	 */
+	public double getY(double t) {
+		return originY + t*directionY;
+	}
+	/**
+	 * @param t A distance from the origin
+	 * @return The point at distance t
+	 */
+	public Point2D.Double getPoint(double t) {
+		return new Point2D.Double(getX(t), getY(t));
+	}
+	/**
+	 * @param t A distance from the origin
+	 * @return True if t is within the range of this segment
+	 */
+	public boolean contains(double t) {
+		return t > tMin && t <= tMax;
+	}
+}
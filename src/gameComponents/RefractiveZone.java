@@ -1,7 +1,7 @@
 package gameComponents;
 import java.awt.*;
 import java.awt.geom.Point2D;
-import java.util.*;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -76,6 +76,8 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 	}
 
 	public void setRefractionIndex(double refractionIndex) {
+		if (this.refractionIndex != refractionIndex)
+			changed();
 		this.refractionIndex = refractionIndex;
 	}
 
@@ -102,6 +104,8 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 	}
 	
 	public void setOuterIndex(double outerIndex) {
+		if (this.outerIndex != outerIndex)
+			changed();
 		this.outerIndex = outerIndex;
 	}
 	/**
@@ -138,6 +142,8 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 			refractionIndex+=0.1;
 		else if (m < 0 && refractionIndex > 1) 
 			refractionIndex-=0.1;
+		
+		changed();
 	}
 	/**
 	 * 
@@ -172,185 +178,92 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 	/**
 	 * Always returns true here because a ray of light 
 	 * will always pass through this kind of optical object
-	 * @see gameComponents.OpticalObject#checkOrientation(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.OpticalObject#checkOrientation(gameComponents.RaySegment, double)
 	 */
 	@Override
-	public boolean checkOrientation(Point2D.Double p, Point2D.Double useless, LineEq segment) {
+	public boolean checkOrientation(RaySegment segment, double t) {
 		return true;
 	}
 	/**
-	 * 
-	 * @see gameComponents.OpticalObject#setNormalLine(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
+	 * Finds the surface of this zone on which a point is
+	 * @param x X coordinate of the point
+	 * @param y Y coordinate of the point
+	 * @return 0, 1, 2 or 3 for the left, right, top or bottom side of the rectangle
 	 */
-	@Override
-	public void setNormalLine(Point2D.Double intersection, Point2D.Double p1) {
-		//if the intersection point is on an horizontal surface, set normal line with
-		//a slope of zero, otherwise it hit a vertical side and set the slope to infinity
-		if ((intersection.getX() == getBounds()[0] || intersection.getX() == getBounds()[2]) 
-				&& (intersection.getY() != getBounds()[1] && intersection.getY() != getBounds()[3]))
-			
-			setNormalLine(new LineEq(0, intersection.getX(), intersection.getY()));
-		else
-			setNormalLine(new LineEq(1.0/0, intersection.getX(), intersection.getY()));
+	protected int surfaceAt(double x, double y) {
+		double[] b = getBounds();
+
+		//the point is on the closest side of the rectangle
+		double left = Math.abs(x-b[0]);
+		double right = Math.abs(x-b[2]);
+		double top = Math.abs(y-b[1]);
+		double bottom = Math.abs(y-b[3]);
+		double min = Math.min(Math.min(left, right), Math.min(top, bottom));
+
+		if (min == left)
+			return 0;
+		else if (min == right)
+			return 1;
+		else if (min == top)
+			return 2;
+		else return 3;
 	}
 	/**
-	 * 
-	 * @see gameComponents.OpticalObject#bend(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @param surface A value returned by surfaceAt()
+	 * @param x X coordinate of a point of the surface
+	 * @param y Y coordinate of a point of the surface
+	 * @return X component of the normal of the surface pointing out of this zone, of length 1
 	 */
-	@Override
-	public Point2D.Double bend(Point2D.Double source, Point2D.Double intersec, LineEq incidentLine) {
-
-		setNormalLine(intersec, source);
-
-		double resultSlope;
-		
-		//if the ray that hit this optical object is going out of it n1 = refractionIndex and n2 = outerIndex,
-		//see refraction(n1, n2, m1, m2) method, otherwise swap the two values
-		//compute the slope of the refracted line and create a resultLine with that value
-		if (exiting(source, intersec)) 
-			resultSlope = refraction(refractionIndex, outerIndex, incidentLine.getSlope(), getNormalLine().getSlope());
-		else 
-			resultSlope = refraction(outerIndex, refractionIndex, incidentLine.getSlope(), getNormalLine().getSlope());	
-
-		LineEq resultLine = new LineEq(resultSlope, intersec.getX(), intersec.getY());
-		
-		//these are the coordinates of the new endpoint of the ray path that hit this optical object
-		//we use BIG to simulate a point located very far away
-		double farX = BIG;
-		double farY = BIG;
-		
-		if ((getType().equals("RefractiveZone") && infiniteSlope(incidentLine.getSlope()))
-				|| (this instanceof Lens && (infiniteSlope(resultSlope) /*|| Math.abs(resultSlope) > 5000*/))) {	
-
-			farX = intersec.getX();
-			
-			if (intersec.getY() < source.getY())
-				farY *= -1;
-
-			return new Point2D.Double(farX, farY);
-		}	
-		
-		//checks that the resulting line is on the right side of the normal line
-		//if not, change the far point
-		if (checkSide(incidentLine, resultLine, source, intersec)) 
-			farX *= -1;
-			
-		//compute farY by plug-in the value of farX in the equation of the resultLine
-		farY = resultLine.getSlope()*farX + resultLine.getIntercept();
-
-		return new Point2D.Double(farX, farY);
+	protected double normalX(int surface, double x, double y) {
+		if (surface == 0)
+			return -1;
+		else if (surface == 1)
+			return 1;
+		else return 0;
 	}
 	/**
-	 * 
-	 * @see gameComponents.OpticalObject#checkSide(gameComponents.LineEq, gameComponents.LineEq, java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double)
+	 * @param surface A value returned by surfaceAt()
+	 * @param x X coordinate of a point of the surface
+	 * @param y Y coordinate of a point of the surface
+	 * @return Y component of the normal of the surface pointing out of this zone, of length 1
 	 */
-	@Override
-	public boolean checkSide(LineEq incidentLine, LineEq resultLine, Point2D.Double source, Point2D.Double intersec) { 
-
-		if (infiniteSlope(getNormalLine().getSlope())) {
-			if ((source.getX() < intersec.getX() && BIG < intersec.getX()) || (source.getX() > intersec.getX() && BIG > intersec.getX()))
-				return true;
-		}
-		else if (infiniteSlope(incidentLine.getSlope())) {
-			if (this instanceof Lens && getNormalLine().getSlope() < 0) 	
-				return true;
-		}
-		else if (incidentLine.getSlope() == 0) {
-			if (source.getX() > intersec.getX())
-				return true;
-		}
-		else {
-			double sourceOnNormal = getNormalLine().getSlope()*source.getX()+getNormalLine().getIntercept();
-			double farOnResult = resultLine.getSlope()*BIG+resultLine.getIntercept();
-			double farOnNormal = getNormalLine().getSlope()*BIG+getNormalLine().getIntercept();
-			
-			//if the slopes are approximately the same, the angle between them will be very small
-			if (Math.toDegrees(angleBetween(incidentLine.getSlope(), resultLine.getSlope())) < 1) {
-				if (source.getX() > intersec.getX())
-					return true;
-			}
-			//if the source point and the far end point BIG are on the same side of the source point
-			else if ((source.getY() < sourceOnNormal && farOnResult < farOnNormal)
-						|| (source.getY() > sourceOnNormal && farOnResult > farOnNormal)) 
-				return true;
-		}
-		
-		return false;
+	protected double normalY(int surface, double x, double y) {
+		if (surface == 2)
+			return -1;
+		else if (surface == 3)
+			return 1;
+		else return 0;
 	}
 	/**
 	 * 
-	 * Computes the slope of a ray segment refracted by this optical object
-	 * @param n1 The refraction index of the origin zone of the ray 
-	 * @param n2 The refraction index of the current zone
-	 * @param m1 Slope of the incident ray
-	 * @param m2 Slope of the normal line of this optical object
-	 * @return Slope of the refracted ray
+	 * @see gameComponents.OpticalObject#bend(gameComponents.RaySegment, double, gameComponents.RaySegment)
 	 */
-	public double refraction(double n1, double n2, double m1, double m2) {
-		
-		double incidentAngle;	//angle between the incident ray and the normal line
-		
-		if (infiniteSlope(m1))
-			return m1;
-		
-		else if (infiniteSlope(m2)) {
-			
-			if (m1 >= 0)
-				incidentAngle = Math.PI/2 - Math.atan(m1);
-			else
-				incidentAngle = Math.PI/2 - (Math.PI-Math.atan(m1));
-		}
-		else {
-			incidentAngle = angleBetween(m1, m2);
-		}
-		
-		//compute the critical angle
-		double criticalAngle = criticalAngle(n1, n2);
-		
-		//adjust 
-		if (incidentAngle < 0)	
-			criticalAngle -= Math.PI;
+	@Override
+	public void bend(RaySegment segment, double t, RaySegment result) {
+
+		double x = segment.getX(t);
+		double y = segment.getY(t);
+		int surface = surfaceAt(x, y);
+		double nx = normalX(surface, x, y);
+		double ny = normalY(surface, x, y);
 		
-		//total internal reflection occurs when angle of 
-		//incidence is bigger then critical angle
-		if (incidentAngle >= criticalAngle) {
-			return reflection(m1, m2);
-		}	
-		else {
-			
-			//compute the refracted angle using snell's law
-			double refractedAngle = Math.asin((n1*Math.sin(incidentAngle))/n2);
-			double refractedSlope;
-			
-			// computation here depends on the situation
-			if (infiniteSlope(m2))
-				refractedSlope = Math.tan(Math.PI/2-refractedAngle);
-			
-			else {
-				
-				if (m1 < 0)
-					refractedSlope = Math.tan(Math.PI-refractedAngle);
-				else 
-					refractedSlope = Math.tan(refractedAngle);	
-			}
-			
-			return refractedSlope;
-		}
+		//if the ray that hit this optical object is going out of it n1 = refractionIndex and n2 = outerIndex,
+		//otherwise swap the two values
+		if (exiting(segment, nx, ny)) 
+			refract(segment, t, nx, ny, refractionIndex, outerIndex, result);
+		else 
+			refract(segment, t, nx, ny, outerIndex, refractionIndex, result);
 	}
 	/**
-	 * The critical angle is the angle at which a ray is reflected
-	 * instead of refracted in a refractive zone. This occurs
-	 * if its incidence angle is greater than the critical angle
-	 * 
-	 * @param n1 Refractive index of origin zone
-	 * @param n2 Refractive index of destination zone
-	 * @return Critical angle of this zone
+	 * Tells if the ray interacting with this refractive zone 
+	 * is coming in or out of the zone
+	 * @param segment The ray segment that hit this zone
+	 * @param nx X component of the outward normal at the intersection point
+	 * @param ny Y component of the outward normal at the intersection point
+	 * @return True of going out, false if coming in
 	 */
-	public double criticalAngle(double n1, double n2) {
-		
-		double criticalAngle = Math.asin(n2/n1);
-		
-		return criticalAngle;
+	protected boolean exiting(RaySegment segment, double nx, double ny) {
+		return segment.getDirectionX()*nx + segment.getDirectionY()*ny > 0;
 	}
 	/**
 	 * Detects contact if the mouse pointer
@@ -387,130 +300,11 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 	}
 	/**
 	 * 
-	 * @see gameComponents.GameComponent#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.GameComponent#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
-
-		Point2D.Double inter;	//intersection point
-		double interx;	//x coordinate of intersection point
-		double intery;	//y coordinate of intersection point
-		
-		double[] b = getBounds();
-
-		if (infiniteSlope(segment.getSlope())) {
-			
-			interx = p1.getX();
-			
-			if (p1.getY() < p2.getY()) {
-				if (p1.getY() < b[1])
-					intery = b[1];
-				else 
-					intery = b[3];
-			}
-			else {
-				if (p1.getY() > b[3])
-					intery = b[3];
-				else
-					intery = b[1];
-			}
-		}
-		else if (segment.getSlope() == 0) {
-			
-			intery = p1.getY();
-			
-			if (p1.getX() < p2.getX()) {
-				if (p1.getX() < b[0])
-					interx = b[0];
-				else
-					interx = b[2];
-			}
-			else {
-				if (p1.getX() > b[2])
-					interx = b[2];
-				else
-					interx = b[0];
-			}
-		}
-		else {	
-			
-			//take all the intersections and keep the valid ones only
-			Point2D.Double top = new Point2D.Double(((b[1]-segment.getIntercept())/segment.getSlope()), b[1]);
-			Point2D.Double bottom = new Point2D.Double(((b[3]-segment.getIntercept())/segment.getSlope()), b[3]);
-			Point2D.Double left = new Point2D.Double(b[0], segment.getSlope()*b[0]+segment.getIntercept());
-			Point2D.Double right = new Point2D.Double(b[2], segment.getSlope()*b[2]+segment.getIntercept());
-			ArrayList<Point2D.Double> points = new ArrayList<>();
-			points.add(top);
-			points.add(bottom);
-			points.add(left);
-			points.add(right);
-			
-			for (int i = 0; i < points.size(); i++) {
-				if (!(points.get(i).getX() <= b[2] && points.get(i).getX() >= b[0] && points.get(i).getY() <= b[3] && points.get(i).getY() >= b[1]) 
-						|| !sameQuadrant(p1, p2, points.get(i))) {
-					points.remove(i);
-					i--;
-				}
-			}
-			
-			if (points.size() > 0) {
-				
-				interx = points.get(0).getX();
-				intery = points.get(0).getY();
-				
-				if (p1.distance(interx, intery) < 2 && points.size() > 1) {
-					interx = points.get(1).getX();
-					intery = points.get(1).getY();
-				}
-				
-				//keep the solution that is closest to the source point p1
-				for (int i = 1; i < points.size(); i++) {
-					double d = p1.distance(points.get(i));	
-					if (p1.distance(interx, intery) > d && !(d < 2)) {
-						interx = points.get(i).getX();
-						intery = points.get(i).getY();
-					}
-				}
-			}
-			else return null;
-		}
-			
-		inter = new Point2D.Double(interx, intery);
-
-		if (isWithinBounds(inter, b))
-			return inter;
-		else return null;
-	}
-	/**
-	 * Tells if the ray interacting with this refractive zone 
-	 * is coming in or out of the zone
-	 * @param source Source end point of the ray segment
-	 * @param intersec Intersection point of the ray with this zone
-	 * @return True of going out, false if coming in
-	 */
-	public boolean exiting(Point2D.Double source, Point2D.Double intersec) {	
-		
-		if (intersec.getX() > source.getX() && intersec.getY() <= source.getY()) {
-			if (intersec.getX()+1 > getBounds()[2] || intersec.getY()-1 < getBounds()[1])
-				return true;
-			else return false;
-		}
-		else if (intersec.getX() < source.getX() && intersec.getY() <= source.getY()) {
-			if (intersec.getX()-1 < getBounds()[0] || intersec.getY()-1 < getBounds()[1])
-				return true;
-			else return false;
-		}
-		else if (intersec.getX() > source.getX() && intersec.getY() >= source.getY()) {
-			if (intersec.getX()+1 > getBounds()[2] || intersec.getY()+1 > getBounds()[3])
-				return true;
-			else return false;
-		}
-		else if (intersec.getX() < source.getX() && intersec.getY() >= source.getY()) {
-			if (intersec.getX()-1 < getBounds()[0] || intersec.getY()+1 > getBounds()[3])
-				return true;
-			else return false;
-		}
-		else return false;
+	public double intersection(RaySegment segment) {
+		return boxIntersection(segment, getBounds());
 	}
 	/**
 	 * 
@@ -537,6 +331,30 @@ public class RefractiveZone extends OpticalObject implements Cloneable {
 		
 		g.drawString(s, (int)getBounds()[0]+3, (int)getBounds()[1]+15);
 	}
+	/**
+	 * 
+	 * @see gameComponents.OpticalObject#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putDouble(refractionIndex);
+		out.putDouble(outerIndex);
+		out.putInt(width);
+		out.putInt(height);
+	}
+	/**
+	 * 
+	 * @see gameComponents.OpticalObject#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		refractionIndex = in.getDouble();
+		outerIndex = in.getDouble();
+		width = in.getInt();
+		height = in.getInt();
+	}
 	/**
 	 * 
 	 * @see gameComponents.GameComponent#getType()
@@ -0,0 +1,574 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * A scene is the ray tracing engine of the application.
+ * It traces the path of every Ray object in a list of game components
+ * and returns the results without drawing anything, so it does not
+ * need a panel to run.
+ * With an executor, the rays are traced at the same time on several threads.
+ * Tracing only reads the components, which must not change until trace() returns,
+ * and the side effects on targets and obstacles are left to publish().
+ * A scene remembers its last trace: when components change, only the rays
+ * whose previous path crossed the old or the new box of a changed component
+ * are traced again, the paths of the other rays cannot be different.
+ * A component replaced by another one at the same place in the list counts as changed
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class Scene {
+
+	/**
+	 * The maximum number of segments in the path of a ray,
+	 * prevents infinite loops between two reflective surfaces
+	 */
+	private final int MAXSEGMENTS = 1000;
+	/**
+	 * Types of spatial index: bounding volume hierarchy or uniform grid
+	 */
+	public static final int HIERARCHY = 0, GRID = 1;
+	/**
+	 * Below this number of rays, a trace is not worth splitting between threads
+	 */
+	private final int MINPARALLELRAYS = 8;
+	/**
+	 * Pool shared by the scenes that trace in parallel, created on first use
+	 */
+	private static ExecutorService sharedExecutor;
+	/**
+	 * The components of the scene, shared with the owner of the list
+	 */
+	private ArrayList<GameComponent> components;
+	/**
+	 * Spatial index over the bounding boxes of the components, used to
+	 * skip the components that a ray segment cannot hit
+	 */
+	private SpatialIndex index;
+	/**
+	 * Type of the spatial index, HIERARCHY by default.
+	 * The grid can be selected with -Dvirtualoptics.index=grid to compare both
+	 */
+	private int indexType = "grid".equals(System.getProperty("virtualoptics.index")) ? GRID : HIERARCHY;
+	/**
+	 * The components the spatial index was built for, in the same order
+	 */
+	private GameComponent[] indexed = new GameComponent[0];
+	/**
+	 * The box revision of each indexed component when its entry was last updated
+	 */
+	private int[] revisions = new int[0];
+	/**
+	 * Traces the rays one by one, reused by all the traces of this scene
+	 */
+	private Tracer tracer;
+	/**
+	 * Runs the parallel traces, null to trace the rays one after the other on the calling thread
+	 */
+	private ExecutorService executor;
+	/**
+	 * One tracer per task of a parallel trace, reused from one trace to the next
+	 */
+	private Tracer[] workers = new Tracer[0];
+	/**
+	 * Amount added around the boxes of the changed components, the intersection
+	 * methods of the components accept points slightly outside their box
+	 */
+	private final int MARGIN = 2;
+	/**
+	 * True to reuse the paths of the last trace that are not affected by the changes
+	 */
+	private boolean incremental = true;
+	/**
+	 * The result of the last call to trace(), null if the next trace must trace all the rays
+	 */
+	private TraceResult last;
+	/**
+	 * The indexed components at the time of the last trace, with their revision and their box
+	 */
+	private GameComponent[] tracedComponents = new GameComponent[0];
+	private int[] tracedRevisions = new int[0];
+	private Rectangle[] tracedBoxes = new Rectangle[0];
+	/**
+	 * The revision of the scene at the time of the last trace
+	 */
+	private long tracedRevision;
+	/**
+	 * The light of the published trace, splatted on the obstacles
+	 */
+	private LightBuffer light = new LightBuffer();
+	/**
+	 * The number of rays traced by the last call to trace()
+	 */
+	private int retraced;
+
+
+	public Scene(ArrayList<GameComponent> components) {
+		this.components = components;
+	}
+
+
+	public ArrayList<GameComponent> getComponents() {
+		return components;
+	}
+
+	public int getIndexType() {
+		return indexType;
+	}
+	/**
+	 * Selects the spatial index used by the next traces, the paths do not depend on it
+	 * @param indexType GRID, any other value selects HIERARCHY
+	 */
+	public void setIndexType(int indexType) {
+		if (indexType != GRID)
+			indexType = HIERARCHY;
+
+		if (this.indexType != indexType) {
+			this.indexType = indexType;
+			index = null;
+		}
+	}
+
+	public boolean isIncremental() {
+		return incremental;
+	}
+	/**
+	 * @param incremental False to trace all the rays on every call to trace(), the paths do not depend on it
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+		last = null;
+	}
+	/**
+	 * The revision of a scene is the sum of the revisions of its components.
+	 * The revisions only go up, so it changes whenever one of the components changes
+	 * @return The current revision of the scene
+	 */
+	public long getRevision() {
+		long revision = 0;
+		for (int i = 0; i < components.size(); i++)
+			revision += components.get(i).getRevision();
+		
+		return revision;
+	}
+	/**
+	 * @return The light of the last published trace
+	 */
+	public LightBuffer getLight() {
+		return light;
+	}
+	/**
+	 * @return The number of rays that were actually traced by the last call to trace()
+	 */
+	public int getRetracedCount() {
+		return retraced;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+	/**
+	 * Selects the threads used by the next traces, the paths do not depend on it
+	 * @param executor The executor running the parallel traces, null to trace on the calling thread
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+	/**
+	 * @return A pool of daemon threads, one per processor, that can be shared by all the scenes
+	 */
+	public static synchronized ExecutorService getSharedExecutor() {
+		if (sharedExecutor == null) {
+			sharedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "Scene tracer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedExecutor;
+	}
+	/**
+	 * Traces the path of every ray of the scene.
+	 * The components are not modified
+	 * @return The paths of all the rays, in the order of the list of components.
+	 * The result of the last trace is returned as it is if nothing changed since then
+	 */
+	public TraceResult trace() {
+		boolean rebuilt = updateIndex();
+		long revision = getRevision();
+		
+		if (last != null && !rebuilt && revision == tracedRevision && Arrays.equals(indexed, tracedComponents)) {
+			retraced = 0;
+			return last;
+		}
+		
+		//regions where something changed since the last trace, null if every ray must be traced
+		ArrayList<Rectangle> regions = null;
+		if (incremental && last != null && !rebuilt)
+			regions = changedRegions();
+		
+		RayPath[] paths = new RayPath[indexed.length];
+		ArrayList<Ray> dirty = new ArrayList<>();
+		ArrayList<Integer> slots = new ArrayList<>();
+		int rays = 0;
+		
+		for (int i = 0; i < indexed.length; i++) {
+			if (!(indexed[i] instanceof Ray))
+				continue;
+			
+			rays++;
+			RayPath previous = (regions == null) ? null : last.getPath((Ray)indexed[i]);
+			
+			//a ray that changed always crosses its own box, so it is never reused
+			if (previous != null && !crosses(previous, regions))
+				paths[i] = previous;
+			else {
+				dirty.add((Ray)indexed[i]);
+				slots.add(i);
+			}
+		}
+		
+		RayPath[] traced = new RayPath[dirty.size()];
+		
+		if (executor == null || dirty.size() < MINPARALLELRAYS)
+			traceRays(tracer(), dirty, traced, 0, traced.length);
+		else
+			traceParallel(dirty, traced);
+		
+		for (int i = 0; i < traced.length; i++)
+			paths[slots.get(i)] = traced[i];
+		
+		ArrayList<RayPath> result = new ArrayList<>(rays);
+		for (int i = 0; i < paths.length; i++) {
+			if (indexed[i] instanceof Ray)
+				result.add(paths[i]);
+		}
+		
+		retraced = traced.length;
+		tracedRevision = revision;
+		tracedComponents = indexed.clone();
+		tracedRevisions = new int[indexed.length];
+		tracedBoxes = new Rectangle[indexed.length];
+		for (int i = 0; i < indexed.length; i++) {
+			tracedRevisions[i] = indexed[i].getRevision();
+			tracedBoxes[i] = indexed[i].getBox();
+		}
+		
+		last = new TraceResult(result);
+		return last;
+	}
+	/**
+	 * Finds the components that changed since the last trace
+	 * @return The old and the new boxes of the changed components, grown by MARGIN,
+	 * null if a changed component has no box
+	 */
+	private ArrayList<Rectangle> changedRegions() {
+		
+		ArrayList<Rectangle> regions = new ArrayList<>();
+		
+		for (int i = 0; i < indexed.length; i++) {
+			if (indexed[i] == tracedComponents[i] && indexed[i].getRevision() == tracedRevisions[i])
+				continue;
+			
+			if (tracedBoxes[i] == null || indexed[i].getBox() == null)
+				return null;
+			
+			Rectangle before = new Rectangle(tracedBoxes[i]);
+			before.grow(MARGIN, MARGIN);
+			regions.add(before);
+			
+			Rectangle after = new Rectangle(indexed[i].getBox());
+			after.grow(MARGIN, MARGIN);
+			regions.add(after);
+		}
+		return regions;
+	}
+	/**
+	 * @return True if a segment of the path crosses one of the regions
+	 */
+	private boolean crosses(RayPath path, ArrayList<Rectangle> regions) {
+		for (int i = 0; i+1 < path.size(); i++) {
+			for (Rectangle region : regions) {
+				if (region.intersectsLine(path.getX(i), path.getY(i), path.getX(i+1), path.getY(i+1)))
+					return true;
+			}
+		}
+		return false;
+	}
+	/**
+	 * Splits the rays in one contiguous block per worker. Each path is stored at the position
+	 * of its ray, so the result is the same whatever the order in which the blocks end
+	 */
+	private void traceParallel(final ArrayList<Ray> rays, final RayPath[] paths) {
+		
+		int tasks = Math.min(rays.size(), Runtime.getRuntime().availableProcessors());
+		if (workers.length != tasks) {
+			workers = Arrays.copyOf(workers, tasks);
+			for (int i = 0; i < tasks; i++) {
+				if (workers[i] == null)
+					workers[i] = new Tracer();
+			}
+		}
+		
+		ArrayList<Future<?>> futures = new ArrayList<>();
+		
+		for (int i = 0; i < tasks; i++) {
+			final Tracer worker = workers[i];
+			final int from = i*rays.size()/tasks;
+			final int to = (i+1)*rays.size()/tasks;
+			
+			try {
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() {
+						traceRays(worker, rays, paths, from, to);
+						return null;
+					}
+				}));
+			}
+			catch (Exception ex) {
+				futures.add(null);
+			}
+		}
+		
+		for (int i = 0; i < tasks; i++) {
+			try {
+				futures.get(i).get();
+			}
+			catch (Exception ex) {
+				//the block was rejected or failed, trace it again on this thread
+				traceRays(tracer(), rays, paths, i*rays.size()/tasks, (i+1)*rays.size()/tasks);
+			}
+		}
+	}
+	
+	private void traceRays(Tracer tracer, ArrayList<Ray> rays, RayPath[] paths, int from, int to) {
+		for (int i = from; i < to; i++)
+			paths[i] = tracer.trace(rays.get(i));
+	}
+	/**
+	 * Goes through the path of the given ray and checks whether each segment intersects
+	 * a component of the scene. If so, apply the appropriate optical formula to change the direction of the ray.
+	 * @param ray The ray to trace
+	 * @return The path of the ray
+	 */
+	public RayPath trace(Ray ray) {
+		updateIndex();
+		return traceRay(ray);
+	}
+	/**
+	 * Brings the spatial index up to date: it is rebuilt if components were added or removed,
+	 * otherwise only the entries of the components that were replaced or whose box changed are refitted
+	 * @return True if the index was rebuilt
+	 */
+	private boolean updateIndex() {
+		
+		boolean sameList = (index != null && indexed.length == components.size());
+		
+		if (!sameList) {
+			indexed = components.toArray(new GameComponent[components.size()]);
+			revisions = new int[indexed.length];
+			Rectangle[] boxes = new Rectangle[indexed.length];
+			
+			for (int i = 0; i < indexed.length; i++) {
+				boxes[i] = indexed[i].getBox();
+				revisions[i] = indexed[i].getBoxRevision();
+			}
+			
+			if (indexType == GRID)
+				index = new UniformGrid(boxes);
+			else
+				index = new BoundingVolumeHierarchy(boxes);
+			return true;
+		}
+		
+		for (int i = 0; i < indexed.length; i++) {
+			
+			//a component replaced by another one is refitted like a component that moved
+			if (indexed[i] != components.get(i)) {	//checking for a reference match
+				indexed[i] = components.get(i);
+				index.refit(i, indexed[i].getBox());
+				revisions[i] = indexed[i].getBoxRevision();
+			}
+			else if (indexed[i].getBoxRevision() != revisions[i]) {
+				index.refit(i, indexed[i].getBox());
+				revisions[i] = indexed[i].getBoxRevision();
+			}
+		}
+		return false;
+	}
+	
+	private RayPath traceRay(Ray ray) {
+		return tracer().trace(ray);
+	}
+	
+	private Tracer tracer() {
+		if (tracer == null)
+			tracer = new Tracer();
+		
+		return tracer;
+	}
+	/**
+	 * Finds the nearest component hit by a segment of the path of a ray
+	 * @param segment The ray segment
+	 * @return The nearest intersection, null if the segment does not hit anything
+	 */
+	public RayHit closestHit(RaySegment segment) {
+		updateIndex();
+		
+		Tracer tracer = new Tracer();
+		if (!tracer.findClosestHit(segment))
+			return null;
+		
+		return new RayHit(indexed[tracer.hitIndex], segment.getPoint(tracer.hitDistance), tracer.hitDistance);
+	}
+	/**
+	 * Traces the path of one ray at a time. It keeps the path being built, the current segment and the result
+	 * of the last query in arrays and fields that are reused from one bounce and one ray to the next,
+	 * so that tracing a ray allocates nothing but its final path.
+	 * A tracer is used by one thread at a time
+	 */
+	private class Tracer implements SpatialIndex.Visitor {
+		
+		//the path being built, points[i] was hit by hits[i]
+		private double[] x = new double[16];
+		private double[] y = new double[16];
+		private GameComponent[] hits = new GameComponent[16];
+		private int size;
+		
+		private RaySegment current = new RaySegment();
+		private SpatialIndex.Workspace workspace = new SpatialIndex.Workspace(0);
+		
+		//the segment being queried and the nearest hit found so far
+		private RaySegment segment;
+		private int hitIndex;
+		private double hitDistance;
+		
+		
+		RayPath trace(Ray ray) {
+			
+			size = 0;
+			add(ray.getPosition().getX(), ray.getPosition().getY(), null);
+			
+			//a ray that is off is only a segment of length zero
+			if (!ray.isOn()) {
+				add(ray.getPosition().getX(), ray.getPosition().getY(), null);
+				return new RayPath(ray, x, y, hits, size);
+			}
+			
+			ray.firstSegment(current);
+			
+			//each bounce costs one query and adds one point, the limit prevents infinite loops
+			for (int segments = 0; segments <= MAXSEGMENTS; segments++) {
+				
+				//nothing on the way, the ray goes on to infinity
+				if (!findClosestHit(current)) {
+					add(current.getX(current.getTMax()), current.getY(current.getTMax()), null);
+					break;
+				}
+				
+				GameComponent comp = indexed[hitIndex];
+				add(current.getX(hitDistance), current.getY(hitDistance), comp);
+				
+				//the game component that was hit is an optical object, bend the path accordingly
+				//check orientation, if nonreflective or nonrefractive, the ray stops here
+				if (!(comp instanceof OpticalObject))
+					break;
+				
+				OpticalObject currentOb = (OpticalObject)comp;
+				
+				if (!currentOb.checkOrientation(current, hitDistance))
+					break;
+				
+				currentOb.bend(current, hitDistance, current);
+			}
+			
+			return new RayPath(ray, x, y, hits, size);
+		}
+		/**
+		 * Adds a point at the end of the path
+		 */
+		private void add(double px, double py, GameComponent hit) {
+			if (size == x.length) {
+				x = Arrays.copyOf(x, 2*size);
+				y = Arrays.copyOf(y, 2*size);
+				hits = Arrays.copyOf(hits, 2*size);
+			}
+			
+			x[size] = px;
+			y[size] = py;
+			hits[size] = hit;
+			size++;
+		}
+		/**
+		 * Queries the spatial index for the nearest component hit by a segment
+		 * @return True if a component is hit, its index and distance are then in hitIndex and hitDistance
+		 */
+		boolean findClosestHit(RaySegment segment) {
+			this.segment = segment;
+			hitIndex = -1;
+			hitDistance = RaySegment.MISS;
+			
+			if (workspace.size() < indexed.length)
+				workspace = new SpatialIndex.Workspace(indexed.length);
+			
+			index.walk(segment.getOriginX(), segment.getOriginY(), segment.getX(segment.getTMax()), segment.getY(segment.getTMax()), workspace, this);
+			
+			return hitIndex >= 0;
+		}
+		
+		@Override
+		public boolean visit(int[] items, int count, double tExit) {
+			
+			for (int c = 0; c < count; c++) {
+				
+				double t = indexed[items[c]].intersection(segment);
+				
+				//on a tie, the component first in the list wins
+				if (t < hitDistance || (t == hitDistance && t != RaySegment.MISS && items[c] < hitIndex)) {
+					hitDistance = t;
+					hitIndex = items[c];
+				}
+			}
+			
+			//nothing left to visit can be nearer than the hit found
+			return hitIndex < 0 || hitDistance > tExit*segment.getTMax();
+		}
+	}
+	/**
+	 * Passes the results of a trace to the components of the scene:
+	 * each ray keeps its path to draw it, targets are hit by rays of their color
+	 * and obstacles are lit where rays end on them, in the light buffer of the scene.
+	 * The hits were grouped by component when the trace ended, so each component
+	 * only looks up its own entry of the result
+	 * @param result The result of a previous call to trace()
+	 */
+	public void publish(TraceResult result) {
+
+		for (RayPath path : result.getPaths())
+			path.getRay().setTrace(path);
+		
+		for (int i = 0; i < components.size(); i++) {
+			if (components.get(i) instanceof Target)
+				((Target)components.get(i)).setHit(result.isHit((Target)components.get(i)));
+			else if (components.get(i) instanceof Obstacle)
+				((Obstacle)components.get(i)).setCollisions(result.getPathsEndingOn(components.get(i)));
+		}
+		
+		light.update(result, components);
+	}
+}
@@ -0,0 +1,306 @@
+package gameComponents;
+
+import java.awt.Point;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * The content of a level or project file: the components of the plane,
+ * which of them are released, and the markers of the lab.
+ * The file starts with a magic number and the version of its format, then
+ * each component is written as the tag of its type followed by the parameters
+ * that define it. What can be computed again, such as the boxes, the shape of
+ * a prism or the path of a ray, is not written.
+ * Files saved before this format, as serialized lists, are still read
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class SceneFile {
+
+	/**
+	 * The first 4 bytes of a scene file, "VOSC"
+	 */
+	public static final int MAGIC = 0x564F5343;
+	/**
+	 * The version of the format written, files of a later version are not read
+	 */
+	public static final int VERSION = 1;
+	/**
+	 * Size of the magic number and the version
+	 */
+	private static final int HEADERSIZE = 6;
+	/**
+	 * The most bytes a component can write, each component is given a buffer with this much room
+	 */
+	public static final int COMPONENTSIZE = 512;
+	/**
+	 * The tag of each type of component is its index in this array, never reorder it
+	 */
+	private static final String[] TYPES = {"Mirror", "CurvedMirror", "RefractiveZone", "Lens", "Prism", "Target", "Obstacle", "Ray"};
+
+	private ArrayList<GameComponent> components;
+	private ArrayList<Boolean> released;
+	private ArrayList<Point> markers;
+
+
+	public SceneFile(ArrayList<GameComponent> components, ArrayList<Boolean> released, ArrayList<Point> markers) {
+		this.components = components;
+		this.released = released;
+		this.markers = markers;
+	}
+
+	/**
+	 * @return The types of components in the order of their tags
+	 */
+	public static String[] getTypes() {
+		return TYPES.clone();
+	}
+
+	public ArrayList<GameComponent> getComponents() {
+		return components;
+	}
+
+	public ArrayList<Boolean> getReleased() {
+		return released;
+	}
+
+	public ArrayList<Point> getMarkers() {
+		return markers;
+	}
+	/**
+	 * Writes the scene in a file
+	 * @param file The file, replaced if it exists
+	 */
+	public void write(File file) throws IOException {
+		try (OutputStream out = new FileOutputStream(file)) {
+			write(out);
+		}
+	}
+	/**
+	 * Writes the scene in a stream, which is not closed
+	 * @param stream The stream
+	 */
+	public void write(OutputStream stream) throws IOException {
+		ByteBuffer out = toBuffer();
+		stream.write(out.array(), 0, out.position());
+		stream.flush();
+	}
+	/**
+	 * @return A buffer holding the scene, from its start to its position
+	 */
+	public ByteBuffer toBuffer() {
+
+		ByteBuffer out = ByteBuffer.allocate(HEADERSIZE + 4 + components.size()*64);
+		out.putInt(MAGIC);
+		out.putShort((short)VERSION);
+
+		out.putInt(components.size());
+		for (GameComponent comp : components) {
+			out = ensure(out, 1+COMPONENTSIZE);
+			writeComponent(out, comp);
+		}
+
+		out = ensure(out, 4 + released.size() + 4 + 9*markers.size());
+		out.putInt(released.size());
+		for (boolean r : released)
+			out.put((byte)(r ? 1 : 0));
+
+		//a component without marker has a null entry
+		out.putInt(markers.size());
+		for (Point marker : markers) {
+			out.put((byte)(marker != null ? 1 : 0));
+			if (marker != null) {
+				out.putInt(marker.x);
+				out.putInt(marker.y);
+			}
+		}
+		return out;
+	}
+	/**
+	 * Writes the tag of a component followed by its parameters
+	 * @param out A buffer with room for 1+COMPONENTSIZE bytes
+	 * @param comp The component
+	 */
+	static void writeComponent(ByteBuffer out, GameComponent comp) {
+		out.put((byte)tag(comp));
+		comp.write(out);
+	}
+	/**
+	 * Reads a component written by writeComponent, its box is initialized
+	 * @param in The buffer, at the tag of the component
+	 * @return The component
+	 */
+	static GameComponent readComponent(ByteBuffer in) throws IOException {
+		GameComponent comp = create(in.get() & 0xFF);
+		comp.read(in);
+		comp.initBox();
+		return comp;
+	}
+	/**
+	 * Copies a component through the parameters it writes in a scene file.
+	 * What is computed from them, such as the box, is computed again, the path of a ray is not copied
+	 * @param comp The component
+	 * @param buffer A buffer with room for 1+COMPONENTSIZE bytes, can be reused between calls
+	 * @return An equal component that shares nothing with the given one
+	 * @throws IllegalStateException If the component cannot be read back
+	 */
+	public static GameComponent copy(GameComponent comp, ByteBuffer buffer) {
+		buffer.clear();
+		writeComponent(buffer, comp);
+		buffer.flip();
+
+		try {
+			return readComponent(buffer);
+		}
+		catch (IOException | BufferUnderflowException ex) {
+			throw new IllegalStateException("Cannot copy a component of type " + comp.getType(), ex);
+		}
+	}
+	/**
+	 * @return The buffer if it has the room needed, otherwise a bigger copy of it
+	 */
+	static ByteBuffer ensure(ByteBuffer buffer, int needed) {
+		if (buffer.remaining() >= needed)
+			return buffer;
+
+		ByteBuffer bigger = ByteBuffer.allocate(Math.max(2*buffer.capacity(), buffer.position()+needed));
+		buffer.flip();
+		bigger.put(buffer);
+		return bigger;
+	}
+	/**
+	 * Reads a scene from a file
+	 * @param file A scene file, or a file of serialized lists
+	 * @return The scene
+	 */
+	public static SceneFile read(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			byte[] bytes = new byte[(int)file.length()];
+			in.readFully(bytes);
+			return read(bytes);
+		}
+	}
+	/**
+	 * Reads a scene from a stream, which is not closed.
+	 * The whole stream is read first, the components are then read from memory
+	 * @param stream A scene file, or a file of serialized lists
+	 * @return The scene
+	 */
+	public static SceneFile read(InputStream stream) throws IOException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(stream.available(), 8192));
+		byte[] chunk = new byte[8192];
+		int n;
+		while ((n = stream.read(chunk)) > 0)
+			bytes.write(chunk, 0, n);
+
+		return read(bytes.toByteArray());
+	}
+	/**
+	 * Reads the scene in an array, in either format
+	 */
+	private static SceneFile read(byte[] bytes) throws IOException {
+
+		ByteBuffer in = ByteBuffer.wrap(bytes);
+		if (bytes.length < HEADERSIZE || in.getInt(0) != MAGIC)
+			return readSerialized(new ByteArrayInputStream(bytes));
+
+		return read(in);
+	}
+	/**
+	 * Reads a scene from a buffer, from its position
+	 * @param in A buffer starting with the header of a scene file
+	 * @return The scene
+	 */
+	public static SceneFile read(ByteBuffer in) throws IOException {
+
+		try {
+			if (in.getInt() != MAGIC)
+				throw new IOException("Not a scene file");
+
+			int version = in.getShort() & 0xFFFF;
+			if (version > VERSION)
+				throw new IOException("Scene file version " + version + " is newer than this application");
+
+			int n = in.getInt();
+			ArrayList<GameComponent> components = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				components.add(readComponent(in));
+
+			n = in.getInt();
+			ArrayList<Boolean> released = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				released.add(in.get() != 0);
+
+			n = in.getInt();
+			ArrayList<Point> markers = new ArrayList<>(n);
+			for (int i = 0; i < n; i++)
+				markers.add(in.get() != 0 ? new Point(in.getInt(), in.getInt()) : null);
+
+			return new SceneFile(components, released, markers);
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated scene file", ex);
+		}
+	}
+	/**
+	 * Reads the three lists of a file saved with Java serialization
+	 */
+	@SuppressWarnings("unchecked")
+	private static SceneFile readSerialized(InputStream stream) throws IOException {
+		try {
+			ObjectInputStream in = new ObjectInputStream(stream);
+			ArrayList<GameComponent> components = (ArrayList<GameComponent>)in.readObject();		//read in the same order it was saved
+			ArrayList<Boolean> released = (ArrayList<Boolean>)in.readObject();
+			ArrayList<Point> markers = (ArrayList<Point>)in.readObject();
+			return new SceneFile(components, released, markers);
+		}
+		catch (ClassNotFoundException | ClassCastException ex) {
+			throw new IOException("Not a scene file", ex);
+		}
+	}
+	/**
+	 * @return The tag written before the parameters of the component
+	 */
+	private static int tag(GameComponent comp) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].equals(comp.getType()))
+				return i;
+		}
+		throw new IllegalArgumentException("Cannot write a component of type " + comp.getType());
+	}
+	/**
+	 * @return An empty component of the type of the tag, to be read
+	 */
+	private static GameComponent create(int tag) throws IOException {
+
+		if (tag >= TYPES.length)
+			throw new IOException("Unknown component tag " + tag);
+
+		switch (TYPES[tag]) {
+		case "Mirror":			return new Mirror();
+		case "CurvedMirror":	return new CurvedMirror();
+		case "RefractiveZone":	return new RefractiveZone();
+		case "Lens":			return new Lens();
+		case "Prism":			return new Prism();
+		case "Target":			return new Target();
+		case "Obstacle":		return new Obstacle();
+		default:				return new Ray();
+		}
+	}
+}
@@ -0,0 +1,425 @@
+package gameComponents;
+
+import java.awt.Point;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * An append-only journal of the edits made to a list of components, kept in a file so the
+ * list can be recovered when the application stopped before it was saved.
+ * Each call to record() compares the list with the one it recorded last, through the
+ * references and the edit revisions of the components, and encodes the components that were
+ * added, removed or changed in one batch of records. The batches are appended to the file
+ * by a background thread, so recording never waits for the disk.
+ * The writer keeps the recorded list as encoded components. When the file becomes much
+ * bigger than the list, it is compacted: replaced by a single batch adding the whole list.
+ * A batch that was not completely written when the application stopped is left out by replay()
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class SceneJournal {
+
+	/**
+	 * The first 4 bytes of a journal, "VOJL"
+	 */
+	public static final int MAGIC = 0x564F4A4C;
+	/**
+	 * The version of the format written, journals of a later version are not replayed
+	 */
+	public static final int VERSION = 1;
+
+	//types of records: ADD and UPDATE hold the index, the length of the component,
+	//its released flag and the component, REMOVE holds the index and CLEAR nothing
+	private static final int ADD = 1;
+	private static final int UPDATE = 2;
+	private static final int REMOVE = 3;
+	private static final int CLEAR = 4;
+
+	/**
+	 * The file is compacted when it is this many times bigger than the list it records...
+	 */
+	private final int COMPACTION = 4;
+	/**
+	 * ...and bigger than this
+	 */
+	private final int MINCOMPACTION = 64*1024;
+	/**
+	 * Thread shared by all the journals to write their files, created on first use
+	 */
+	private static ExecutorService sharedThread;
+
+	private final File file;
+
+	/*
+	 * State of the recording side, only used by the thread calling record()
+	 */
+	/**
+	 * The components as they were recorded last, with their edit revision and released flag
+	 */
+	private ArrayList<GameComponent> recorded = new ArrayList<>();
+	private ArrayList<Integer> revisions = new ArrayList<>();
+	private ArrayList<Boolean> recordedReleased = new ArrayList<>();
+
+	/*
+	 * State of the writer, only used on the writer thread
+	 */
+	/**
+	 * The recorded list, each component encoded with its released flag as in an ADD record
+	 */
+	private ArrayList<byte[]> state = new ArrayList<>();
+	private long stateSize;
+	/**
+	 * The file, opened for appending on the first batch, and its size
+	 */
+	private DataOutputStream out;
+	private long fileSize;
+
+
+	/**
+	 * @param file The file of the journal, replaced when the first batch is written
+	 */
+	public SceneJournal(File file) {
+		this.file = file;
+	}
+
+	public File getFile() {
+		return file;
+	}
+	/**
+	 * Records the changes made to a list since the last call. Only the components that
+	 * changed are encoded, the file is written on the writer thread.
+	 * A component changed if its edit revision changed, so every parameter it writes, down to
+	 * the moveable, resizeable, rotateable and selecteable flags, must be set through a
+	 * setter that calls changed() or edited(). The selection is written but is not an edit
+	 * @param components The components
+	 * @param released released.get(i) is the released flag of the ith component
+	 */
+	public void record(List<GameComponent> components, List<Boolean> released) {
+
+		IdentityHashMap<GameComponent, Boolean> current = new IdentityHashMap<>();
+		for (GameComponent comp : components)
+			current.put(comp, true);
+
+		IdentityHashMap<GameComponent, Boolean> previous = new IdentityHashMap<>();
+		for (GameComponent comp : recorded)
+			previous.put(comp, true);
+
+		ByteBuffer batch = ByteBuffer.allocate(256);
+		int i = 0, j = 0;	//i goes through the new list, j through the recorded one
+
+		while (i < components.size() || j < recorded.size()) {
+
+			GameComponent comp = (i < components.size()) ? components.get(i) : null;
+			GameComponent old = (j < recorded.size()) ? recorded.get(j) : null;
+
+			if (old != null && old == comp) {	//checking for a reference match
+				if (revisions.get(j) != comp.getEditRevision() || recordedReleased.get(j) != isReleased(released, i))
+					batch = put(batch, UPDATE, i, comp, isReleased(released, i));
+				i++;
+				j++;
+			}
+			else if (old != null && !current.containsKey(old)) {
+				batch = put(batch, REMOVE, i, null, false);
+				j++;
+			}
+			else if (comp != null && !previous.containsKey(comp)) {
+				batch = put(batch, ADD, i, comp, isReleased(released, i));
+				i++;
+			}
+			else {
+				//the components were reordered, the whole list is recorded again
+				batch.clear();
+				batch = put(batch, CLEAR, 0, null, false);
+				for (int k = 0; k < components.size(); k++)
+					batch = put(batch, ADD, k, components.get(k), isReleased(released, k));
+				break;
+			}
+		}
+
+		recorded = new ArrayList<>(components);
+		revisions.clear();
+		recordedReleased.clear();
+		for (int k = 0; k < components.size(); k++) {
+			revisions.add(components.get(k).getEditRevision());
+			recordedReleased.add(isReleased(released, k));
+		}
+
+		if (batch.position() == 0)
+			return;
+
+		final byte[] bytes = Arrays.copyOf(batch.array(), batch.position());
+		getSharedThread().execute(new Runnable() {
+			@Override
+			public void run() {
+				append(bytes);
+			}
+		});
+	}
+	/**
+	 * Deletes the file of the journal, once the list it records is saved or not wanted anymore.
+	 * The next call to record() starts a new file holding the whole list
+	 */
+	public void discard() {
+
+		recorded.clear();
+		revisions.clear();
+		recordedReleased.clear();
+
+		getSharedThread().execute(new Runnable() {
+			@Override
+			public void run() {
+				close();
+				state.clear();
+				stateSize = 0;
+				file.delete();
+			}
+		});
+	}
+
+	private boolean isReleased(List<Boolean> released, int i) {
+		return i >= released.size() || released.get(i);
+	}
+	/**
+	 * Adds a record to a batch
+	 * @return The batch, or a bigger copy of it
+	 */
+	private ByteBuffer put(ByteBuffer batch, int type, int index, GameComponent comp, boolean released) {
+
+		batch = SceneFile.ensure(batch, 1 + 4 + 4 + 1 + 1 + SceneFile.COMPONENTSIZE);
+		batch.put((byte)type);
+		batch.putInt(index);
+
+		if (comp != null) {
+			int start = batch.position();
+			batch.putInt(0);
+			batch.put((byte)(released ? 1 : 0));
+			SceneFile.writeComponent(batch, comp);
+			batch.putInt(start, batch.position() - start - 4);	//length of the flag and the component
+		}
+		return batch;
+	}
+	/**
+	 * Appends a batch to the file and applies it to the state. Runs on the writer thread
+	 */
+	private void append(byte[] batch) {
+
+		try {
+			if (out == null) {
+				//the first batch of a journal starts a new file
+				out = new DataOutputStream(new FileOutputStream(file));
+				out.writeInt(MAGIC);
+				out.writeShort(VERSION);
+				fileSize = 6;
+			}
+
+			apply(ByteBuffer.wrap(batch));
+
+			out.writeInt(batch.length);
+			out.write(batch);
+			out.flush();
+			fileSize += 4 + batch.length;
+
+			if (fileSize > MINCOMPACTION && fileSize > COMPACTION*stateSize)
+				compact();
+		}
+		catch (IOException ex) {
+			//the journal is started again on the next batch
+			close();
+		}
+	}
+	/**
+	 * Applies the records of a batch to the encoded list
+	 */
+	private void apply(ByteBuffer in) {
+
+		while (in.hasRemaining()) {
+			int type = in.get();
+			int index = in.getInt();
+
+			if (type == REMOVE) {
+				stateSize -= state.remove(index).length;
+			}
+			else if (type == CLEAR) {
+				state.clear();
+				stateSize = 0;
+			}
+			else {
+				byte[] comp = new byte[in.getInt()];
+				in.get(comp);
+
+				if (type == ADD)
+					state.add(index, comp);
+				else
+					stateSize -= state.set(index, comp).length;
+				stateSize += comp.length;
+			}
+		}
+	}
+	/**
+	 * Replaces the file with one holding a single batch that adds the whole list.
+	 * The new file is written next to the old one and moved over it, so a stop in the
+	 * middle leaves one of them complete
+	 */
+	private void compact() throws IOException {
+
+		close();
+		File compacted = new File(file.getPath() + ".tmp");
+
+		try (DataOutputStream tmp = new DataOutputStream(new FileOutputStream(compacted))) {
+			tmp.writeInt(MAGIC);
+			tmp.writeShort(VERSION);
+
+			int length = 1 + 4;
+			for (byte[] comp : state)
+				length += 1 + 4 + 4 + comp.length;
+
+			tmp.writeInt(length);
+			tmp.writeByte(CLEAR);
+			tmp.writeInt(0);
+			for (int i = 0; i < state.size(); i++) {
+				tmp.writeByte(ADD);
+				tmp.writeInt(i);
+				tmp.writeInt(state.get(i).length);
+				tmp.write(state.get(i));
+			}
+			fileSize = tmp.size();
+		}
+
+		try {
+			Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (AtomicMoveNotSupportedException ex) {
+			Files.move(compacted.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		out = new DataOutputStream(new FileOutputStream(file, true));
+	}
+
+	private void close() {
+		if (out == null)
+			return;
+
+		try {
+			out.close();
+		}
+		catch (IOException ex) {
+		}
+		out = null;
+	}
+	/**
+	 * Rebuilds the list recorded in a journal file. The batches are replayed in order,
+	 * up to the last one that was completely written
+	 * @param file The file of a journal
+	 * @return The recorded list, its markers are all null
+	 */
+	public static SceneFile replay(File file) throws IOException {
+
+		ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+		if (in.remaining() < 6 || in.getInt() != MAGIC)
+			throw new IOException("Not a journal");
+
+		int version = in.getShort() & 0xFFFF;
+		if (version > VERSION)
+			throw new IOException("Journal version " + version + " is newer than this application");
+
+		ArrayList<GameComponent> components = new ArrayList<>();
+		ArrayList<Boolean> released = new ArrayList<>();
+
+		while (in.remaining() >= 4) {
+			int length = in.getInt();
+			if (length < 0 || length > in.remaining())
+				break;
+
+			ByteBuffer batch = in.slice();
+			batch.limit(length);
+			in.position(in.position() + length);
+
+			try {
+				replay(batch, components, released);
+			}
+			catch (IOException | RuntimeException ex) {
+				//a damaged batch ends the journal
+				break;
+			}
+		}
+
+		ArrayList<Point> markers = new ArrayList<>();
+		for (int i = 0; i < components.size(); i++)
+			markers.add(null);
+
+		return new SceneFile(components, released, markers);
+	}
+	/**
+	 * Applies the records of a batch to a list of components
+	 */
+	private static void replay(ByteBuffer in, ArrayList<GameComponent> components, ArrayList<Boolean> released) throws IOException {
+
+		try {
+			while (in.hasRemaining()) {
+				int type = in.get();
+				int index = in.getInt();
+
+				if (type == REMOVE) {
+					components.remove(index);
+					released.remove(index);
+				}
+				else if (type == CLEAR) {
+					components.clear();
+					released.clear();
+				}
+				else {
+					in.getInt();
+					boolean flag = in.get() != 0;
+					GameComponent comp = SceneFile.readComponent(in);
+
+					if (type == ADD) {
+						components.add(index, comp);
+						released.add(index, flag);
+					}
+					else {
+						components.set(index, comp);
+						released.set(index, flag);
+					}
+				}
+			}
+		}
+		catch (BufferUnderflowException ex) {
+			throw new IOException("Truncated batch", ex);
+		}
+	}
+	/**
+	 * @return A daemon thread that writes the batches of all the journals in order
+	 */
+	private static synchronized ExecutorService getSharedThread() {
+		if (sharedThread == null) {
+			sharedThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "Journal writer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedThread;
+	}
+}
@@ -0,0 +1,73 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * A spatial index finds the game components whose bounding box
+ * can be crossed by a ray segment, so the scene does not need to
+ * test the segment against every component.
+ * The index is not changed by a walk, so several threads can walk it
+ * at the same time as long as each one uses its own Workspace
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public interface SpatialIndex {
+
+	/**
+	 * Receives the components found along a segment, group by group,
+	 * in the order in which the segment reaches them
+	 */
+	public interface Visitor {
+		/**
+		 * @param items Indices of the components of the group
+		 * @param count Number of indices in items
+		 * @param tExit Position along the segment, from 0 to 1: every component
+		 * the segment can cross before this position was given to the visitor
+		 * @return False to stop the walk
+		 */
+		boolean visit(int[] items, int count, double tExit);
+	}
+	/**
+	 * The working storage of a walk, one per thread
+	 */
+	public static final class Workspace {
+		/**
+		 * Holds the components of the group given to the visitor
+		 */
+		int[] items;
+		/**
+		 * marks[i] == stamp if the ith component was already given during the current walk
+		 */
+		int[] marks;
+		int stamp;
+		
+		/**
+		 * @param size The number of components in the index
+		 */
+		public Workspace(int size) {
+			items = new int[size];
+			marks = new int[size];
+		}
+		
+		public int size() {
+			return items.length;
+		}
+	}
+
+	/**
+	 * Updates the box of one component
+	 * @param index Index of the component that changed
+	 * @param box New bounding box of the component
+	 */
+	void refit(int index, Rectangle box);
+	/**
+	 * Walks along the segment from (x1, y1) to (x2, y2) and passes the components
+	 * it can hit to the visitor, nearest groups first. A component is given only once
+	 * @param workspace Working storage, at least as big as the number of components
+	 */
+	void walk(double x1, double y1, double x2, double y2, Workspace workspace, Visitor visitor);
+}
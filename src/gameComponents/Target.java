@@ -1,7 +1,7 @@
 package gameComponents;
 import java.awt.*;
 import java.awt.geom.Point2D;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
 
 /**
  * 
@@ -22,9 +22,10 @@ public class Target extends GameComponent {
 	 */
 	private double radius = 10;
 	/**
-	 * True if target has been hit by a valid ray
+	 * True if target has been hit by a valid ray.
+	 * It is set when a trace is published, so it is not saved
 	 */
-	private boolean hit;
+	private transient volatile boolean hit;
 	/**
 	 * X coordinate of the center of the target,
 	 * called h by convention
@@ -89,12 +90,11 @@ public class Target extends GameComponent {
 		return k;
 	}
 	/**
-	 * Notifies the user that this target was successfully hit by a ray of light
-	 * @param incidentColor The color of the ray that hit this target
+	 * @param incidentColor The color of a ray that hits this target
+	 * @return True if a ray of this color is a successful hit
 	 */
-	public void react(Color incidentColor) {
-		if (incidentColor.equals(getColor()))
-			hit = true;		
+	public boolean accepts(Color incidentColor) {
+		return incidentColor.equals(getColor());
 	}
 	
 	/**
@@ -115,61 +115,26 @@ public class Target extends GameComponent {
 	}
 	/**
 	 * 
-	 * @see gameComponents.GameComponent#intersection(java.awt.geom.Point2D.Double, java.awt.geom.Point2D.Double, gameComponents.LineEq)
+	 * @see gameComponents.GameComponent#intersection(gameComponents.RaySegment)
 	 */
 	@Override
-	public Point2D.Double intersection(Point2D.Double p1, Point2D.Double p2, LineEq segment) {
+	public double intersection(RaySegment segment) {
 	
-		Point2D.Double inter;		
-		double interx, intery;
-		
-		if (infiniteSlope(segment.getSlope())) {
-			
-			interx = p1.getX();
-			
-			double[] circleSols = circSolsX(p1.getX(), radius, h, k);
-			double closeY = circleSols[0];
-			double farY = circleSols[1];
-			
-			//take the solution that is closest to the source point
-			if (distance(p1.getX(), p1.getY(), p1.getX(), farY) < distance(p1.getX(), p1.getY(), p1.getX(), closeY)) {
-				double temp = closeY;
-				closeY = farY;
-				farY = temp;
-			}
-			
-			intery = closeY;
-			
-		}
-		else {	
-			
-			//compute the possible intersections of the ray segment with this target
-			ArrayList<Point2D.Double> solutions = circSolsGeneral(segment, radius, h, k);
+		//compute the possible intersections of the ray segment with this target
+		double t = circleIntersection(segment, radius, h, k);
 
-			if (solutions == null) {
-				hit = false;
-				return null;
-			}
-				
-			Point2D.Double closeSol = solutions.get(0);
-			Point2D.Double farSol = solutions.get(1);
-			double closeDis = distance(closeSol.getX(), closeSol.getY(), p1.getX(), p1.getY());
-			double farDis = distance(farSol.getX(), farSol.getY(), p1.getX(), p1.getY());
-			
-			//take the solution that is closest to the source point
-			if (closeDis > farDis) {
-				Point2D.Double temp = (Point2D.Double)closeSol.clone();	
-				closeSol = (Point2D.Double)farSol.clone();
-				farSol = temp;		
-			}
-
-			interx = closeSol.getX();
-			intery = closeSol.getY();
-			
-		}
+		if (Double.isNaN(t))
+			return RaySegment.MISS;
 
-		inter = new Point2D.Double(interx, intery);
-		return inter;
+		//take the solution that is closest to the source point
+		if (segment.contains(t))
+			return t;
+		
+		t = otherCircleIntersection(segment, h, k, t);
+		
+		if (segment.contains(t))
+			return t;
+		else return RaySegment.MISS;
 	}
 	/**
 	 * 
@@ -190,6 +155,28 @@ public class Target extends GameComponent {
 			g.drawOval((int)(h-radius), (int)(k-radius), (int)radius*2, (int)radius*2);
 		}
 	}
+	/**
+	 * 
+	 * @see gameComponents.GameComponent#write(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void write(ByteBuffer out) {
+		super.write(out);
+		out.putDouble(radius);
+		out.putDouble(h);
+		out.putDouble(k);
+	}
+	/**
+	 * 
+	 * @see gameComponents.GameComponent#read(java.nio.ByteBuffer)
+	 */
+	@Override
+	protected void read(ByteBuffer in) {
+		super.read(in);
+		radius = in.getDouble();
+		h = in.getDouble();
+		k = in.getDouble();
+	}
 	/**
 	 * 
 	 * @see gameComponents.GameComponent#getType()
@@ -0,0 +1,90 @@
+package gameComponents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class holds the paths of all the rays traced by a Scene.
+ * It is immutable, so it can be kept and drawn as many times
+ * as needed without tracing the rays again.
+ * It also groups the paths by the component they end on, so the hits
+ * of each target and obstacle are found without going through all the rays
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class TraceResult {
+
+	/**
+	 * The paths of the traced rays, in the order of the list of components
+	 */
+	private final List<RayPath> paths;
+	/**
+	 * Finds the path of a ray, using a reference match
+	 */
+	private final IdentityHashMap<Ray, RayPath> byRay = new IdentityHashMap<>();
+	/**
+	 * The paths ending on each component, using a reference match
+	 */
+	private final IdentityHashMap<GameComponent, List<RayPath>> byLastHit = new IdentityHashMap<>();
+
+
+	TraceResult(ArrayList<RayPath> paths) {
+		this.paths = Collections.unmodifiableList(new ArrayList<>(paths));
+
+		for (RayPath path : paths) {
+			byRay.put(path.getRay(), path);
+			
+			if (path.getLastHit() != null) {
+				List<RayPath> ending = byLastHit.get(path.getLastHit());
+				if (ending == null) {
+					ending = new ArrayList<>();
+					byLastHit.put(path.getLastHit(), ending);
+				}
+				ending.add(path);
+			}
+		}
+		
+		for (IdentityHashMap.Entry<GameComponent, List<RayPath>> entry : byLastHit.entrySet())
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+	}
+
+
+	public List<RayPath> getPaths() {
+		return paths;
+	}
+	/**
+	 * @param ray A ray of the traced scene
+	 * @return The path of the given ray, null if it was not traced
+	 */
+	public RayPath getPath(Ray ray) {
+		return byRay.get(ray);
+	}
+	/**
+	 * @param component A component of the traced scene
+	 * @return The paths whose last point is on the given component, in the order of the rays
+	 */
+	public List<RayPath> getPathsEndingOn(GameComponent component) {
+		List<RayPath> ending = byLastHit.get(component);
+		if (ending == null)
+			return Collections.emptyList();
+		
+		return ending;
+	}
+	/**
+	 * @param target A target of the traced scene
+	 * @return True if the target is hit by a ray of its color
+	 */
+	public boolean isHit(Target target) {
+		for (RayPath path : getPathsEndingOn(target)) {
+			if (target.accepts(path.getRay().getColor()))
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,295 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+import java.util.Arrays;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * A uniform grid divides the region covered by the game components
+ * in square cells and keeps the list of components overlapping each cell.
+ * A ray segment walks through the cells it crosses, from the nearest
+ * to the farthest (Amanatides-Woo traversal), so the components close
+ * to the start of the segment are found first and the walk can stop
+ * as soon as a hit is confirmed
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class UniformGrid implements SpatialIndex {
+
+	/**
+	 * Amount added around each box, the intersection methods of
+	 * the components accept points slightly outside their box
+	 */
+	private final double MARGIN = 2;
+	/**
+	 * Smallest side of a cell in pixels
+	 */
+	private final double MINCELL = 16;
+	/**
+	 * Largest number of cells in a row or a column
+	 */
+	private final int MAXCELLS = 256;
+
+	//region covered by the grid
+	private double minX;
+	private double minY;
+	private double maxX;
+	private double maxY;
+	private double cellSize;
+	private int columns;
+	private int rows;
+
+	/**
+	 * cells[row*columns+column] holds the indices of the components overlapping a cell
+	 */
+	private int[][] cells;
+	private int[] cellCount;
+	/**
+	 * Components without a box or with a box outside of the grid, given to every walk
+	 */
+	private int[] unbounded;
+	private int unboundedCount;
+	/**
+	 * Cells covered by each component: first column, first row, last column, last row.
+	 * The first column is -1 if the component is unbounded
+	 */
+	private int[][] range;
+
+
+	/**
+	 * Builds the grid over the bounding boxes of the given components
+	 * @param boxes The bounding boxes, null boxes are never culled
+	 */
+	public UniformGrid(Rectangle[] boxes) {
+
+		int n = boxes.length;
+
+		range = new int[n][4];
+		unbounded = new int[Math.max(1, n)];
+
+		//the grid covers the boxes of all the components
+		minX = Double.MAX_VALUE;
+		minY = Double.MAX_VALUE;
+		maxX = -Double.MAX_VALUE;
+		maxY = -Double.MAX_VALUE;
+		double area = 0;
+
+		for (int i = 0; i < n; i++) {
+			if (boxes[i] == null)
+				continue;
+
+			minX = Math.min(minX, boxes[i].getMinX()-MARGIN);
+			minY = Math.min(minY, boxes[i].getMinY()-MARGIN);
+			maxX = Math.max(maxX, boxes[i].getMaxX()+MARGIN);
+			maxY = Math.max(maxY, boxes[i].getMaxY()+MARGIN);
+			area += (boxes[i].getWidth()+2*MARGIN) * (boxes[i].getHeight()+2*MARGIN);
+		}
+
+		if (minX > maxX) {
+			minX = 0;
+			minY = 0;
+			maxX = MINCELL;
+			maxY = MINCELL;
+		}
+
+		//about one cell per component, but never smaller than an average box
+		double width = maxX-minX;
+		double height = maxY-minY;
+		cellSize = Math.max(MINCELL, Math.sqrt(width*height/Math.max(1, n)));
+		cellSize = Math.max(cellSize, Math.sqrt(area/Math.max(1, n)));
+		cellSize = Math.max(cellSize, Math.max(width, height)/MAXCELLS);
+
+		columns = Math.max(1, (int)Math.ceil(width/cellSize));
+		rows = Math.max(1, (int)Math.ceil(height/cellSize));
+		maxX = minX + columns*cellSize;
+		maxY = minY + rows*cellSize;
+
+		cells = new int[columns*rows][];
+		cellCount = new int[columns*rows];
+
+		for (int i = 0; i < n; i++)
+			insert(i, boxes[i]);
+	}
+	/**
+	 * Adds a component to the cells overlapped by its box
+	 */
+	private void insert(int index, Rectangle box) {
+
+		if (box == null || box.getMinX()-MARGIN < minX || box.getMinY()-MARGIN < minY
+				|| box.getMaxX()+MARGIN > maxX || box.getMaxY()+MARGIN > maxY) {
+			range[index][0] = -1;
+			unbounded[unboundedCount++] = index;
+			return;
+		}
+
+		range[index][0] = column(box.getMinX()-MARGIN);
+		range[index][1] = row(box.getMinY()-MARGIN);
+		range[index][2] = column(box.getMaxX()+MARGIN);
+		range[index][3] = row(box.getMaxY()+MARGIN);
+
+		for (int r = range[index][1]; r <= range[index][3]; r++) {
+			for (int c = range[index][0]; c <= range[index][2]; c++) {
+				int cell = r*columns+c;
+
+				if (cells[cell] == null)
+					cells[cell] = new int[2];
+				else if (cellCount[cell] == cells[cell].length)
+					cells[cell] = Arrays.copyOf(cells[cell], 2*cellCount[cell]);
+
+				cells[cell][cellCount[cell]++] = index;
+			}
+		}
+	}
+	/**
+	 * Removes a component from the cells it was added to
+	 */
+	private void remove(int index) {
+
+		if (range[index][0] < 0) {
+			removeFrom(unbounded, unboundedCount, index);
+			unboundedCount--;
+			return;
+		}
+
+		for (int r = range[index][1]; r <= range[index][3]; r++) {
+			for (int c = range[index][0]; c <= range[index][2]; c++) {
+				int cell = r*columns+c;
+				removeFrom(cells[cell], cellCount[cell], index);
+				cellCount[cell]--;
+			}
+		}
+	}
+	/**
+	 * Removes a value from the first count elements of an array by moving the last element in its place
+	 */
+	private void removeFrom(int[] list, int count, int value) {
+		for (int i = 0; i < count; i++) {
+			if (list[i] == value) {
+				list[i] = list[count-1];
+				return;
+			}
+		}
+	}
+
+	private int column(double x) {
+		return Math.min(columns-1, Math.max(0, (int)Math.floor((x-minX)/cellSize)));
+	}
+
+	private int row(double y) {
+		return Math.min(rows-1, Math.max(0, (int)Math.floor((y-minY)/cellSize)));
+	}
+	/**
+	 * Moves a component to the cells of its new box. A box leaving the region
+	 * of the grid makes the component unbounded, so it is tested by every walk
+	 */
+	@Override
+	public void refit(int index, Rectangle box) {
+		remove(index);
+		insert(index, box);
+	}
+
+	/**
+	 * The unbounded components are given first with a position of 0, since they can be hit anywhere.
+	 * Then the cells are visited from the start of the segment to its end, each one with the position
+	 * at which the segment leaves it
+	 */
+	@Override
+	public void walk(double x1, double y1, double x2, double y2, Workspace workspace, Visitor visitor) {
+
+		int[] found = workspace.items;
+		int[] mark = workspace.marks;
+		int stamp = ++workspace.stamp;
+
+		if (unboundedCount > 0) {
+			System.arraycopy(unbounded, 0, found, 0, unboundedCount);
+			for (int i = 0; i < unboundedCount; i++)
+				mark[unbounded[i]] = stamp;
+
+			if (!visitor.visit(found, unboundedCount, 0))
+				return;
+		}
+
+		double dx = x2-x1;
+		double dy = y2-y1;
+
+		//part of the segment inside the grid (slab test)
+		double tEnter = 0;
+		double tLeave = 1;
+
+		if (dx == 0) {
+			if (x1 < minX || x1 > maxX)
+				return;
+		}
+		else {
+			double t1 = (minX-x1)/dx;
+			double t2 = (maxX-x1)/dx;
+			tEnter = Math.max(tEnter, Math.min(t1, t2));
+			tLeave = Math.min(tLeave, Math.max(t1, t2));
+		}
+
+		if (dy == 0) {
+			if (y1 < minY || y1 > maxY)
+				return;
+		}
+		else {
+			double t1 = (minY-y1)/dy;
+			double t2 = (maxY-y1)/dy;
+			tEnter = Math.max(tEnter, Math.min(t1, t2));
+			tLeave = Math.min(tLeave, Math.max(t1, t2));
+		}
+
+		if (tEnter > tLeave)
+			return;
+
+		//cell containing the point where the segment enters the grid
+		int c = column(x1 + dx*tEnter);
+		int r = row(y1 + dy*tEnter);
+
+		//direction of the steps and position along the segment at which the next column or row is reached
+		int stepC = (dx > 0) ? 1 : -1;
+		int stepR = (dy > 0) ? 1 : -1;
+		double tDeltaC = (dx == 0) ? Double.MAX_VALUE : cellSize/Math.abs(dx);
+		double tDeltaR = (dy == 0) ? Double.MAX_VALUE : cellSize/Math.abs(dy);
+		double tNextC = (dx == 0) ? Double.MAX_VALUE : (minX + (c + (dx > 0 ? 1 : 0))*cellSize - x1)/dx;
+		double tNextR = (dy == 0) ? Double.MAX_VALUE : (minY + (r + (dy > 0 ? 1 : 0))*cellSize - y1)/dy;
+
+		while (true) {
+
+			double tExit = Math.min(tLeave, Math.min(tNextC, tNextR));
+
+			//components of the cell that were not given yet
+			int cell = r*columns+c;
+			int count = 0;
+
+			for (int i = 0; i < cellCount[cell]; i++) {
+				int index = cells[cell][i];
+				if (mark[index] != stamp) {
+					mark[index] = stamp;
+					found[count++] = index;
+				}
+			}
+
+			if (count > 0 && !visitor.visit(found, count, tExit))
+				return;
+
+			if (tExit >= tLeave)
+				return;
+
+			//step to the next cell
+			if (tNextC < tNextR) {
+				c += stepC;
+				tNextC += tDeltaC;
+			}
+			else {
+				r += stepR;
+				tNextR += tDeltaR;
+			}
+
+			if (c < 0 || c >= columns || r < 0 || r >= rows)
+				return;
+		}
+	}
+}
@@ -0,0 +1,205 @@
+package gameComponents;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * The containment tree of the refractive zones of a list of components.
+ * The parent of a zone is the smallest plain refractive zone whose box contains
+ * its box, so a ray leaving a zone goes into its parent, or into the air when it
+ * has none. Lenses and prisms are solid, they have a parent but are never one.
+ * The parents are found through a bounding volume hierarchy over the boxes of the
+ * zones. When zones move, only the zones that moved and the zones under the old
+ * and new boxes of a moved plain zone look for their parent again
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class ZoneTree {
+
+	/**
+	 * The components of the plane, the list is read, never modified
+	 */
+	private final List<GameComponent> components;
+	/**
+	 * The zones of the list, in the order of the list
+	 */
+	private RefractiveZone[] zones = new RefractiveZone[0];
+	/**
+	 * The box of each zone and its revision when the parents were last found
+	 */
+	private Rectangle[] boxes;
+	private int[] revisions;
+	/**
+	 * parent[i] is the index of the zone enclosing the ith zone, -1 if it is in the air
+	 */
+	private int[] parent;
+	/**
+	 * Position of each zone in the zones array
+	 */
+	private IdentityHashMap<RefractiveZone, Integer> position = new IdentityHashMap<>();
+	private BoundingVolumeHierarchy index;
+	/**
+	 * Number of boxes refitted since the hierarchy was built
+	 */
+	private int refits;
+	/**
+	 * Receives the indices found by a query
+	 */
+	private int[] found;
+
+
+	/**
+	 * @param components The components of the plane, can be changed between two updates
+	 */
+	public ZoneTree(List<GameComponent> components) {
+		this.components = components;
+	}
+
+	public List<GameComponent> getComponents() {
+		return components;
+	}
+	/**
+	 * @param zone A zone of the list, as of the last update
+	 * @return The innermost plain zone enclosing the zone, null if it is in the air
+	 */
+	public RefractiveZone getParent(RefractiveZone zone) {
+		Integer i = position.get(zone);
+
+		if (i == null || parent[i] < 0)
+			return null;
+
+		return zones[parent[i]];
+	}
+	/**
+	 * Brings the tree up to date with the components of the list. The tree is built
+	 * again if zones were added, removed or replaced, otherwise only the zones whose
+	 * parent may have changed look for it again
+	 */
+	public void update() {
+
+		ArrayList<RefractiveZone> current = new ArrayList<>();
+		for (GameComponent comp : components) {
+			if (comp instanceof RefractiveZone)
+				current.add((RefractiveZone)comp);
+		}
+
+		boolean sameZones = (index != null && current.size() == zones.length);
+		for (int i = 0; sameZones && i < zones.length; i++)
+			sameZones = (current.get(i) == zones[i]);	//checking for a reference match
+
+		if (!sameZones) {
+			build(current);
+			return;
+		}
+
+		//zones that moved, and the region where the parent of other zones may have changed
+		ArrayList<Integer> moved = new ArrayList<>();
+		ArrayList<Rectangle> regions = new ArrayList<>();
+
+		for (int i = 0; i < zones.length; i++) {
+			if (zones[i].getBoxRevision() == revisions[i])
+				continue;
+
+			if (isContainer(zones[i])) {
+				regions.add(boxes[i]);
+				regions.add(zones[i].getBox());
+			}
+
+			boxes[i] = zones[i].getBox();
+			revisions[i] = zones[i].getBoxRevision();
+			index.refit(i, boxes[i]);
+			refits++;
+			moved.add(i);
+		}
+
+		if (moved.isEmpty())
+			return;
+
+		//a refitted leaf stays where it was built, after many moves the tree is built again
+		if (refits > zones.length) {
+			build(current);
+			return;
+		}
+
+		for (int i : moved)
+			parent[i] = findParent(i);
+
+		for (Rectangle region : regions) {
+			int count = index.find(region, found);
+
+			for (int i : Arrays.copyOf(found, count))
+				parent[i] = findParent(i);
+		}
+	}
+	/**
+	 * Builds the hierarchy over the boxes of the zones and finds the parent of every zone
+	 */
+	private void build(ArrayList<RefractiveZone> current) {
+
+		int n = current.size();
+		zones = current.toArray(new RefractiveZone[n]);
+		boxes = new Rectangle[n];
+		revisions = new int[n];
+		parent = new int[n];
+		found = new int[n];
+		position.clear();
+
+		for (int i = 0; i < n; i++) {
+			boxes[i] = zones[i].getBox();
+			revisions[i] = zones[i].getBoxRevision();
+			position.put(zones[i], i);
+		}
+
+		index = new BoundingVolumeHierarchy(boxes);
+		refits = 0;
+
+		for (int i = 0; i < n; i++)
+			parent[i] = findParent(i);
+	}
+	/**
+	 * Finds the smallest plain zone whose box contains the box of a zone.
+	 * Of two zones with the same area, the first one of the list encloses the other
+	 * @return The index of the parent, -1 if there is none
+	 */
+	private int findParent(int i) {
+
+		Rectangle box = boxes[i];
+		double area = (double)box.width*box.height;
+		int best = -1;
+		double bestArea = 0;
+
+		int count = index.find(box, found);
+
+		for (int c = 0; c < count; c++) {
+			int k = found[c];
+
+			if (k == i || !isContainer(zones[k]) || !boxes[k].contains(box))
+				continue;
+
+			double kArea = (double)boxes[k].width*boxes[k].height;
+
+			//the enclosing zone must be bigger, or first in the list, so a zone is never its own ancestor
+			if (kArea < area || (kArea == area && k > i))
+				continue;
+
+			if (best < 0 || kArea < bestArea) {
+				best = k;
+				bestArea = kArea;
+			}
+		}
+		return best;
+	}
+	/**
+	 * @return True if rays can go through the zone into other components, lenses and prisms are solid
+	 */
+	private boolean isContainer(RefractiveZone zone) {
+		return zone.getClass() == RefractiveZone.class;
+	}
+}
@@ -1,6 +1,6 @@
 package userInterface;
 
-import gameComponents.GameComponent;
+import gameComponents.SceneFile;
 
 import java.awt.AlphaComposite;
 import java.awt.Color;
@@ -8,21 +8,13 @@ import java.awt.Component;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.ArrayList;
 import java.util.Scanner;
 
-import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -183,31 +175,31 @@ public class GameMenu extends JLabel{
         		if(componentName == "labMenu"){
             		if(!once){
 	            		once = true;
-	            		JLabel homeLabel = new JLabel(new ImageIcon(homeIcon));
+	            		JLabel homeLabel = new JLabel(ImageCache.getIcon(homeIcon));
 	            		homeLabel.setToolTipText("Go to Home Page");
 	            		addMouseListener("goMainMenu", homeLabel);
 	            		p.add(homeLabel);
 	            		homeLabel.setBounds(90, 5, 75, 75);
 	            		
-	            		JLabel clearLabel = new JLabel(new ImageIcon(newIcon));
+	            		JLabel clearLabel = new JLabel(ImageCache.getIcon(newIcon));
 	            		clearLabel.setToolTipText("Reset/Clear Optical Setup");
 	            		addMouseListener("clearAll", clearLabel);
 	            		p.add(clearLabel);
 	            		clearLabel.setBounds(15, 85, 75, 75);
 	            		
-	            		JLabel saveLabel = new JLabel(new ImageIcon(saveIcon));
+	            		JLabel saveLabel = new JLabel(ImageCache.getIcon(saveIcon));
 	            		saveLabel.setToolTipText("Save Optical Setup");
 	            		addMouseListener("save", saveLabel);
 	            		p.add(saveLabel);
 	            		saveLabel.setBounds(160, 85, 75, 75);
 	            		
-	            		JLabel loadLabel = new JLabel(new ImageIcon(loadIcon));
+	            		JLabel loadLabel = new JLabel(ImageCache.getIcon(loadIcon));
 	            		loadLabel.setToolTipText("Load an Optical Setup");
 	            		addMouseListener("load", loadLabel);
 	            		p.add(loadLabel);
 	            		loadLabel.setBounds(90, 170, 75, 75);
 	            		
-	            		JLabel controlsLabel = new JLabel(new ImageIcon(controlsIcon));
+	            		JLabel controlsLabel = new JLabel(ImageCache.getIcon(controlsIcon));
 	            		controlsLabel.setToolTipText("Help/See Controls");
 	            		addMouseListener("controls", controlsLabel);
 	            		p.add(controlsLabel);
@@ -222,25 +214,25 @@ public class GameMenu extends JLabel{
             	if(componentName == "levelMenu"){
             		if(!once){
                 		once = true;
-                		JLabel homeLabel = new JLabel(new ImageIcon(homeIcon));
+                		JLabel homeLabel = new JLabel(ImageCache.getIcon(homeIcon));
                 		homeLabel.setToolTipText("Go to Home Page");
                 		addMouseListener("goMainMenu", homeLabel);
                 		p.add(homeLabel);
                 		homeLabel.setBounds(90, 5, 75, 75);
                 		
-                		JLabel ladderLabel = new JLabel(new ImageIcon(ladderIcon));
+                		JLabel ladderLabel = new JLabel(ImageCache.getIcon(ladderIcon));
                 		ladderLabel.setToolTipText("Go to Level Selection");
                 		addMouseListener("selectLevel", ladderLabel);
                 		p.add(ladderLabel);
                 		ladderLabel.setBounds(160, 85, 75, 75);
                 		
-                		JLabel resetLabel = new JLabel(new ImageIcon(resetIcon));
+                		JLabel resetLabel = new JLabel(ImageCache.getIcon(resetIcon));
                 		resetLabel.setToolTipText("Restart Level");
                 		addMouseListener("resetLevel", resetLabel);
                 		p.add(resetLabel);
                 		resetLabel.setBounds(90, 170, 75, 75);
                 		
-                		JLabel controlsLabel = new JLabel(new ImageIcon(controlsIcon));
+                		JLabel controlsLabel = new JLabel(ImageCache.getIcon(controlsIcon));
                 		controlsLabel.setToolTipText("Help/See Controls");
 	            		addMouseListener("controls", controlsLabel);
 	            		p.add(controlsLabel);
@@ -293,14 +285,14 @@ public class GameMenu extends JLabel{
 	 */
 	void loadImages(){
 		try {
-			menuIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"gameMenuIcon.png"));
-			homeIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"homeicon.png"));
-			ladderIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"laddericon.png"));
-			loadIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"loadicon.png"));
-			newIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"newicon.png"));
-			resetIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"reseticon.png"));
-			saveIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"saveicon.png"));
-			controlsIcon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"controlsicon.png"));
+			menuIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"gameMenuIcon.png"));
+			homeIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"homeicon.png"));
+			ladderIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"laddericon.png"));
+			loadIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"loadicon.png"));
+			newIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"newicon.png"));
+			resetIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"reseticon.png"));
+			saveIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"saveicon.png"));
+			controlsIcon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"controlsicon.png"));
 		} catch (IOException e) {
 		}
 	}
@@ -417,16 +409,7 @@ public class GameMenu extends JLabel{
 		// execute if the user passes the alert
 		if(alert == yes){
 		
-			int level = ((Level) getParent()).currentLevel;
-			
-			try {
-				ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File("."+File.separator+"levels"+File.separator + level)));
-				((Level) getParent()).setActiveComponents((ArrayList<GameComponent>) in.readObject(), (ArrayList<Boolean>) in.readObject(), (ArrayList<Point>) in.readObject());
-				in.close();
-			}
-			
-			catch (Exception ex) {
-			}
+			((Level) getParent()).loadLevel();
 			
 			((Level) getParent()).repaint();
 		}
@@ -461,12 +444,8 @@ public class GameMenu extends JLabel{
 			int option = jfc.showOpenDialog(null);
 			if (option == JFileChooser.APPROVE_OPTION) {
 				File project = jfc.getSelectedFile();
-				ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(project));
 				// write all the necessary objects to the .op file
-				out.writeObject(((Lab)getParent()).getActiveComponents());
-				out.writeObject(((Lab)getParent()).getReleased());
-				out.writeObject(((Lab)getParent()).getMarkers());
-				out.close();
+				new SceneFile(((Lab)getParent()).getActiveComponents(), ((Lab)getParent()).getReleased(), ((Lab)getParent()).getMarkers()).write(project);
 				if (!project.getName().contains(".op"))
 					project.renameTo(new File(project.getCanonicalPath()+".op"));
 			}
@@ -524,7 +503,7 @@ public class GameMenu extends JLabel{
 			((Lab) getParent()).scrollContainer.removeAll();
 			((Lab) getParent()).initializeAvailableComponents();
 			((Lab) getParent()).makeScrollPanel();
-			getParent().repaint();
+			((Lab) getParent()).refresh();
 		}		
 	}
 }
\ No newline at end of file
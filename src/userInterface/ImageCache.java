@@ -0,0 +1,187 @@
+package userInterface;
+
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.IdentityHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.swing.ImageIcon;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * The images of the application, shared by all the panels. Each image file is decoded
+ * once and converted to the format of the screen, so it is drawn without being converted
+ * again, then the same image is given to every panel that reads the file. The panels are
+ * created again each time the user goes to them, this way they no longer read the disk.
+ * The images of the folders given to preload() are read in advance on a thread of their own
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+class ImageCache {
+
+	/**
+	 * The images read or being read, by path. A file that could not be read has a null image.
+	 * A file is decoded by the first thread asking for it, the threads asking for the same
+	 * file wait for it, the others are not held
+	 */
+	private static final ConcurrentHashMap<String, Future<BufferedImage>> images = new ConcurrentHashMap<>();
+	/**
+	 * The icon made for each image
+	 */
+	private static final IdentityHashMap<Image, ImageIcon> icons = new IdentityHashMap<>();
+	/**
+	 * Thread reading the images in advance, created on first use
+	 */
+	private static ExecutorService loaderThread;
+
+
+	private ImageCache() {
+	}
+	/**
+	 * Reads an image file, or gives the image read before from the same file
+	 * @param file An image file
+	 * @return The image, shared, it must not be drawn on
+	 * @throws IOException If the file cannot be read
+	 */
+	static BufferedImage read(final File file) throws IOException {
+
+		String path = file.getAbsoluteFile().toPath().normalize().toString();
+		Future<BufferedImage> loading = images.get(path);
+
+		if (loading == null) {
+			FutureTask<BufferedImage> task = new FutureTask<>(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() {
+					return load(file);
+				}
+			});
+
+			//the thread that put the task decodes the file
+			loading = images.putIfAbsent(path, task);
+			if (loading == null) {
+				loading = task;
+				task.run();
+			}
+		}
+
+		BufferedImage image;
+		try {
+			image = loading.get();
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while reading " + file);
+		}
+		catch (ExecutionException ex) {
+			throw new IIOException("Can't read input file " + file, ex.getCause());
+		}
+
+		if (image == null)
+			throw new IIOException("Can't read input file " + file);
+
+		return image;
+	}
+	/**
+	 * @param image An image, usually given by read(File)
+	 * @return An icon of the image, shared by the labels showing it
+	 */
+	static ImageIcon getIcon(Image image) {
+		synchronized (icons) {
+			ImageIcon icon = icons.get(image);
+			if (icon == null) {
+				icon = new ImageIcon(image);
+				icons.put(image, icon);
+			}
+			return icon;
+		}
+	}
+	/**
+	 * Reads the images of folders on a background thread, so they are ready when a panel asks for them
+	 * @param folders Folders holding PNG or JPG files
+	 */
+	static void preload(final File... folders) {
+		getLoaderThread().execute(new Runnable() {
+			@Override
+			public void run() {
+				for (File folder : folders) {
+					File[] files = folder.listFiles();
+					if (files == null)
+						continue;
+
+					for (File file : files) {
+						String name = file.getName().toLowerCase();
+						if (!name.endsWith(".png") && !name.endsWith(".jpg"))
+							continue;
+
+						try {
+							read(file);
+						}
+						catch (IOException ex) {
+						}
+					}
+				}
+			}
+		});
+	}
+	/**
+	 * Decodes an image file and converts it to the format of the screen
+	 * @return The image, null if the file cannot be read
+	 */
+	private static BufferedImage load(File file) {
+
+		BufferedImage image;
+		try {
+			image = ImageIO.read(file);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+
+		if (image == null || GraphicsEnvironment.isHeadless())
+			return image;
+
+		GraphicsConfiguration config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+		if (image.getColorModel().equals(config.getColorModel(image.getTransparency())))
+			return image;
+
+		BufferedImage compatible = config.createCompatibleImage(image.getWidth(), image.getHeight(), image.getTransparency());
+		Graphics2D g = compatible.createGraphics();
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return compatible;
+	}
+	/**
+	 * @return A daemon thread that reads the images in advance
+	 */
+	private static synchronized ExecutorService getLoaderThread() {
+		if (loaderThread == null) {
+			loaderThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "Image loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return loaderThread;
+	}
+}
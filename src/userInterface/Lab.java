@@ -6,6 +6,7 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.geom.RectangularShape;
 import java.util.*;
 import java.io.*;
@@ -28,6 +29,18 @@ public class Lab extends JPanel {
 	private static final long serialVersionUID = -7872169687505709389L;
 	private final double BIG = 100000;
 	private final int MARKERSIZE = 20;
+	/**
+	 * greatest distance between the mouse pointer and the corner of a component it resizes
+	 */
+	private final int RESIZEREACH = 50;
+	/**
+	 * largest number of passes made by repositionAll over the components
+	 */
+	private final int SOLVERPASSES = 32;
+	/**
+	 * largest number of positions tried by repositionAll for one component in one pass
+	 */
+	private final int SOLVERTRIES = 64;
 	protected int scrollPaneSize = 127;
 	/**
 	 * width of the panel
@@ -39,6 +52,22 @@ public class Lab extends JPanel {
 	protected int h = 600;
 	protected double scale = 1;
 	protected boolean scaling;
+	/**
+	 * world coordinates of the top left corner of the camera view,
+	 * panning the view changes them instead of moving the components
+	 */
+	protected double cameraX;
+	protected double cameraY;
+	
+	//brushes and hints used to draw the selection and the bounding boxes over the frames
+	private static final BasicStroke SELECTIONSTROKE = new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+	private static final BasicStroke DASHEDSTROKE = new BasicStroke(1.0f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 5.0f, new float[] {5.0f}, 0.0f);
+	static final RenderingHints ANTIALIASING = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+	/**
+	 * amount added around a repainted region, covers the width of the brushes,
+	 * the frames of the selected components and the spots of light around collisions
+	 */
+	static final int REPAINTMARGIN = 32;
 	/**
 	 * timer used for animation when the camera view changes
 	 */
@@ -118,10 +147,6 @@ public class Lab extends JPanel {
 	 */
 	private boolean changingView = false;
 	
-	/**
-	 * contains the current state of the game
-	 */
-	private File backupFile;
 	
 //	protected boolean lvlEditionMode = false;	this feature is not available to the user
 
@@ -144,6 +169,30 @@ public class Lab extends JPanel {
 	 * that are active on the plane
 	 */
 	ArrayList<GameComponent> activeComponents = new ArrayList<>();
+	/**
+	 * traces the rays of the active components and draws them on its own thread,
+	 * the panel paints the last frame it finished
+	 */
+	private Renderer renderer = new Renderer(this);
+	/**
+	 * finds the components near a point or a moving component,
+	 * so the overlap and contact checks do not go through every component
+	 */
+	private BroadPhase broadPhase = new BroadPhase(activeComponents);
+	/**
+	 * finds the innermost refractive zone around each zone, to set their outer index
+	 */
+	private ZoneTree zoneTree = new ZoneTree(activeComponents);
+	/**
+	 * records the edits of the lab in a file, so the optical setup can be recovered
+	 * if the application stops before it is saved. Levels have none
+	 */
+	private SceneJournal journal;
+	/**
+	 * the edits of the lab that can be undone and redone. Levels have none
+	 */
+	private EditHistory history;
+	private final File JOURNALFILE = new File("."+File.separator+"user"+File.separator+"journal");
 	/**
 	 * contains lists of components that are available to the user
 	 */
@@ -171,6 +220,10 @@ public class Lab extends JPanel {
 		activeComponents.clear();
 		
 		if (!(this instanceof Level)) {
+			recover();
+			journal = new SceneJournal(JOURNALFILE);
+			history = new EditHistory();
+			history.reset(activeComponents, released);
 			initializeAvailableComponents();
 			setLayout(null);	//for set bounds to work
 			makeScrollPanel();
@@ -209,7 +262,7 @@ public class Lab extends JPanel {
 					}
 				}
 				repositionAll();
-				repaint();
+				refresh();
 			}
 		});
 		
@@ -231,19 +284,27 @@ public class Lab extends JPanel {
 				changingView = false;
 				refreshCursor();
 				keyHeldCount = 0;
+				commitEdit();
 			}
 			
 			@Override
 			public void keyTyped(KeyEvent e) {	
 				
 				updateProperties(e.getKeyChar());
-				repaint();
+				refresh();
 			}
 			
 			@Override
 			public void keyPressed(KeyEvent e) {
 				
-				createBackup();
+				//CTRL+Z undoes the last edit, CTRL+Y or CTRL+SHIFT+Z does it again
+				if (e.isControlDown() && (e.getKeyCode() == KeyEvent.VK_Z || e.getKeyCode() == KeyEvent.VK_Y)) {
+					if (e.getKeyCode() == KeyEvent.VK_Y || e.isShiftDown())
+						redo();
+					else undo();
+					return;
+				}
+				
 				updateProperties(e);
 				
 				if (e.isControlDown()) {
@@ -254,7 +315,7 @@ public class Lab extends JPanel {
 				if (!e.isShiftDown())
 					repositionAll();
 				
-				repaint();
+				refresh();
 			}
 		});
 		
@@ -263,12 +324,10 @@ public class Lab extends JPanel {
 			@Override
 			public void mousePressed(MouseEvent e) {
 				
-				createBackup();
-				
 				//when the user clicks while holding ALT key down, a new selection rectangle is started
 				if (e.isAltDown()) {
-					((Rectangle)selectionRec).setLocation(e.getPoint());
-					originalPos = new Point2D.Double(e.getX(), e.getY());
+					originalPos = toWorld(e.getX(), e.getY());
+					((Rectangle)selectionRec).setLocation((int)originalPos.getX(), (int)originalPos.getY());
 				}
 			}
 			
@@ -277,10 +336,8 @@ public class Lab extends JPanel {
 				
 				//reset some values when the mouse is released
 				
-				for (int i = 0; i < released.size(); i++) {
+				for (int i = 0; i < released.size(); i++) 
 					released.set(i, true);
-					indices();
-				}
 				
 				/*
 				 * check to see if components are inside the selection rectangle
@@ -299,7 +356,8 @@ public class Lab extends JPanel {
 				((Rectangle)selectionRec).setRect(new Rectangle(-1, -1));	//this is equivalent to a nonexisting rectangle
 				indices();
 				repositionAll();
-				repaint();
+				refresh();
+				commitEdit();
 			}
 			
 			@Override
@@ -309,7 +367,7 @@ public class Lab extends JPanel {
 
 					//if the user double-clicks on a component, select it
 					for (int i = 0; i < activeComponents.size(); i++) {
-						if (activeComponents.get(i).contact(new Point2D.Double(e.getPoint().getX(), e.getPoint().getY()))) {
+						if (activeComponents.get(i).contact(toWorld(e.getX(), e.getY()))) {
 							if (activeComponents.get(i).isSelected())
 								activeComponents.get(i).setSelected(false);
 							else activeComponents.get(i).setSelected(true);
@@ -335,14 +393,14 @@ public class Lab extends JPanel {
 					
 					countX = 0;
 					countY = 0;
-					diffX = (w/2-activeComponents.get(componentIndex).getPosition().getX());
-					diffY = (h/2-activeComponents.get(componentIndex).getPosition().getY());
+					diffX = (w/2-(activeComponents.get(componentIndex).getPosition().getX()-cameraX));
+					diffY = (h/2-(activeComponents.get(componentIndex).getPosition().getY()-cameraY));
 					
 					//start the animation to move the camera view to the component corresponding to the marker that was clicked
 					timer.start();	
 				}
 				
-				repaint();
+				refresh();
 			}
 		});
 		
@@ -357,10 +415,10 @@ public class Lab extends JPanel {
 				overMarker = false;
 
 				//check if the cursor is over a component and set overComp var accordingly
-				for (int i = 0; i < activeComponents.size(); i++) {
-					if (e.getPoint() == null)
-						break;
-					if (activeComponents.get(i).contact(new Point2D.Double(e.getX(), e.getY()))) 
+				Point2D.Double mouse = toWorld(e.getX(), e.getY());
+				getBroadPhase(activeComponents).update();
+				for (int i : nearby(activeComponents, mouse, 0)) {
+					if (activeComponents.get(i).contact(mouse)) 
 						overComp = true;	
 				}
 				
@@ -380,25 +438,59 @@ public class Lab extends JPanel {
 			@Override
 			public void mouseDragged(MouseEvent e) {
 				
+				//position of the mouse pointer in the plane
+				Point2D.Double mouse = toWorld(e.getX(), e.getY());
+				
+				//region of the plane covered by the components before and after they changed
+				Rectangle region = null;
+				boolean wasDragging = draggingComp;
+				
 				/*
 				 * if the user holds CTRL key down while dragging the mouse, the camera view is changed in the
-				 * direction of motion
+				 * direction of motion, the components do not move so the rays do not need to be traced again
 				 */
 				if (e.isControlDown()) {
-					for (int i = 0; i < activeComponents.size(); i++) {
-						Point2D.Double p = activeComponents.get(i).getPosition();
-						activeComponents.get(i).setPosition(new Point2D.Double((p.getX()+(e.getX()-prevMouseX)), (p.getY()+(e.getY()-prevMouseY))));	
-					}
+					cameraX -= (e.getX()-prevMouseX)/scale;
+					cameraY -= (e.getY()-prevMouseY)/scale;
 				}
 				else if (e.isAltDown()) {
 
 					//update the size and position of the selection rectangle
-					endPos = new Point2D.Double(e.getX(), e.getY());
+					region = selectionRec.getBounds();
+					endPos = mouse;
 					selectionRec.setFrameFromDiagonal(originalPos, endPos);
+					region.add(selectionRec.getBounds());
 				}
 				else {
 					
-					for (int i = 0; i < activeComponents.size(); i++) {
+					/*
+					 * only the components being dragged, the ones under the mouse pointer and,
+					 * when the shift key is held down, the ones with a corner near it can change
+					 */
+					boolean dragging = released.contains(false);
+					int[] candidates;
+					
+					//displacement of the mouse pointer in the plane, the components dragged move by the same amount
+					double deltaX = (e.getX()-prevMouseX)/scale;
+					double deltaY = (e.getY()-prevMouseY)/scale;
+					
+					//the broad phase is brought up to date once, then each component moved is refitted
+					BroadPhase phase = getBroadPhase(activeComponents);
+					phase.update();
+					
+					if (dragging) {
+						int count = 0;
+						candidates = new int[released.size()];
+						for (int i = 0; i < released.size(); i++) {
+							if (!released.get(i)) 
+								candidates[count++] = i;
+						}
+						candidates = Arrays.copyOf(candidates, count);
+					}
+					else 
+						candidates = nearby(activeComponents, mouse, e.isShiftDown() ? RESIZEREACH : 0);
+					
+					for (int i : candidates) {
 
 						Point2D.Double p = activeComponents.get(i).getPosition();
 						boolean canMove = activeComponents.get(i).isMoveable();
@@ -407,20 +499,24 @@ public class Lab extends JPanel {
 						 * if the current component is released and another component is being dragged
 						 * skip this one and continue through the loop
 						 */
-						if (released.get(i) && released.contains(false)) 
+						if (released.get(i) && dragging) 
 							continue;
 
 						/*
 						 * if the user drags the mouse on this component, move the component with the mouse pointer (drags the component)
 						 */
-						if ((canMove && !e.isShiftDown() && activeComponents.get(i).contact(new Point2D.Double(e.getX(), e.getY()))) 
+						if ((canMove && !e.isShiftDown() && activeComponents.get(i).contact(mouse)) 
 								|| !released.get(i)) {
 							
 							//check that the move will not result in an overlap
-							if (!overlap(activeComponents, e.getX()-prevMouseX, e.getY()-prevMouseY, i)) {
+							if (!overlap(activeComponents, deltaX, deltaY, i)) {
 								
-								activeComponents.get(i).setPosition(new Point2D.Double((p.getX()+(e.getX()-prevMouseX)), (p.getY()+(e.getY()-prevMouseY))));	
+								region = include(region, activeComponents.get(i));
+								activeComponents.get(i).setPosition(new Point2D.Double(p.getX()+deltaX, p.getY()+deltaY));	
+								region = include(region, activeComponents.get(i));
+								phase.refit(i);
 								updateReleased(i);
+								dragging = true;
 							}
 						}
 
@@ -428,13 +524,16 @@ public class Lab extends JPanel {
 						 * if the user holds the shift key and drags the corner of a refractive zone
 						 * that zone will be resized accordingly
 						 */
-						if (activeComponents.get(i).getType().equals("RefractiveZone") && e.isShiftDown()) {
+						if (isZone(activeComponents.get(i)) && e.isShiftDown()) {
 							
 							RefractiveZone refZone = (RefractiveZone)activeComponents.get(i);
 							
-							if (e.getPoint().distance(refZone.getBounds()[2], refZone.getBounds()[3]) < 50 && (beingResized == i || beingResized == -1)) { 
+							if (mouse.distance(refZone.getBounds()[2], refZone.getBounds()[3]) < RESIZEREACH && (beingResized == i || beingResized == -1)) { 
 								
-								refZone.scale(e.getX(), e.getY());	
+								region = include(region, refZone);
+								refZone.scale(mouse.getX(), mouse.getY());	
+								region = include(region, refZone);
+								phase.refit(i);
 								resizingRectanle = true;
 								beingResized = i;
 							}
@@ -447,12 +546,15 @@ public class Lab extends JPanel {
 							
 							Obstacle ob = (Obstacle)activeComponents.get(i);
 							
-							if (e.getPoint().distance(ob.getBounds()[2], ob.getBounds()[3]) < 50 && (beingResized == i || beingResized == -1)) {
+							if (mouse.distance(ob.getBounds()[2], ob.getBounds()[3]) < RESIZEREACH && (beingResized == i || beingResized == -1)) {
 								
 								//check that the move will not result in an overlap
-								if (!overlap(activeComponents, e.getX()-prevMouseX, e.getY()-prevMouseY, i)) {
+								if (!overlap(activeComponents, deltaX, deltaY, i)) {
 									
-									ob.scale(e.getX(), e.getY());
+									region = include(region, ob);
+									ob.scale(mouse.getX(), mouse.getY());
+									region = include(region, ob);
+									phase.refit(i);
 									resizingRectanle = true;
 									beingResized = i;
 								}
@@ -467,10 +569,31 @@ public class Lab extends JPanel {
 					
 				prevMouseX = e.getX();
 				prevMouseY = e.getY();
-				repaint();
+				
+				/*
+				 * when only some components changed, only the region they cover is repainted.
+				 * Moving the camera or showing the boxes of all the components repaints the whole panel
+				 */
+				if (region == null || draggingComp != wasDragging)
+					refresh();
+				else 
+					refresh(region);
 			}
 		});
 	}
+	/**
+	 * adds the bounding box of a component to a region of the plane
+	 * @param region the region, null if it is empty
+	 * @param comp the component
+	 * @return the region holding the box of the component
+	 */
+	private Rectangle include(Rectangle region, GameComponent comp) {
+		if (region == null)
+			return new Rectangle(comp.getBox());
+		
+		region.add(comp.getBox());
+		return region;
+	}
 	
 	//reacts to the action events triggered by the timer to produce the camera view changing animation
 	class TimeListener implements ActionListener {	
@@ -492,13 +615,11 @@ public class Lab extends JPanel {
 			
 			
 			/*
-			 * reposition all components incrementally so that the selected one is
+			 * move the camera view incrementally so that the selected component is
 			 * in the middle of the view (center point is h/2,w/2)
 			 */
-			for (int i = 0; i < activeComponents.size(); i++) {
-				Point2D.Double p = activeComponents.get(i).getPosition();
-				activeComponents.get(i).setPosition(new Point2D.Double((p.getX()+dx), (p.getY()+dy)));	
-			}
+			cameraX -= dx;
+			cameraY -= dy;
 			
 			countX += dx;
 			countY += dy;
@@ -523,25 +644,14 @@ public class Lab extends JPanel {
 //		if (lvlEditionMode) 
 //			g0.drawString("E", 5, 50);
 		
-		/*
-		 * call the impact methods of each ray object in the list of 
-		 * active components
-		 */
-		for (int i = 0; i < activeComponents.size(); i++) {
-			
-			if (activeComponents.get(i) instanceof Ray) 
-				((Ray)activeComponents.get(i)).impact(activeComponents);
-		}
+		//a new frame is only made if a component or the camera view changed since the last one
+		render(null);
+		
+		//the plane is drawn through the camera, the markers stay on the edges of the view
+		drawPlane((Graphics2D)g0);
 		
 		Graphics2D g = (Graphics2D)g0.create();
 		g.scale(scale, scale);
-
-		//draw the selection rectangle (if any)
-		g.setColor(Color.YELLOW.brighter());
-    	g.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-		g.draw(selectionRec);
-		
-		drawComponents(g, activeComponents);	
 		
 		updateMarkers();
 		
@@ -557,7 +667,96 @@ public class Lab extends JPanel {
 		checkWin();	
 	}
 	/**
-	 * adjusts the size and position of the active components
+	 * sends the active components and the camera view to the renderer if they changed
+	 * since the last frame, the rays are traced again and a new frame is made on the render thread
+	 * @param region region of the plane holding the components that changed, null if it is not known
+	 */
+	void render(Rectangle region) {
+		renderer.update(region);
+	}
+	/**
+	 * called on the event dispatch thread when the renderer finished a frame,
+	 * passes the hits of the targets to the active components and paints the frame
+	 * @param source list of components the frame was made from
+	 * @param hits hits[i] is true if the ith component is a target that was hit
+	 * @param damage part of the panel that changed since the previous frame, null for the whole panel
+	 * @param frameCameraX camera view of the frame
+	 * @param frameCameraY camera view of the frame
+	 * @param frameScale scale of the frame
+	 */
+	void frameReady(ArrayList<GameComponent> source, boolean[] hits, Rectangle damage, double frameCameraX, double frameCameraY, double frameScale) {
+		
+		//the components may have changed since the snapshot, the hits are only kept if the list is the same
+		if (source == activeComponents && hits.length == activeComponents.size()) {
+			for (int i = 0; i < hits.length; i++) {
+				if (activeComponents.get(i) instanceof Target)
+					((Target)activeComponents.get(i)).setHit(hits[i]);
+			}
+		}
+		
+		if (damage == null || frameCameraX != cameraX || frameCameraY != cameraY || frameScale != scale)
+			repaint();
+		else
+			repaint(damage);
+	}
+	/**
+	 * makes a new frame and repaints the panel,
+	 * called after the components were changed
+	 */
+	void refresh() {
+		render(null);
+		repaint();
+		record();
+	}
+	/**
+	 * makes a new frame that only draws again the part of the plane that changed,
+	 * called when the components that changed are known, while they are dragged
+	 * @param region region of the plane holding the old and new boxes of the components that changed
+	 */
+	void refresh(Rectangle region) {
+		
+		Rectangle2D changed = new Rectangle2D.Double(region.getX()-REPAINTMARGIN, region.getY()-REPAINTMARGIN, 
+				region.getWidth()+2*REPAINTMARGIN, region.getHeight()+2*REPAINTMARGIN);
+		
+		//a component leaving the camera view changes the markers on the edges, the whole panel is repainted
+		if (!getViewRec().contains(changed)) {
+			refresh();
+			return;
+		}
+		
+		render(region);
+		record();
+		
+		//the selection rectangle and the bounding boxes are drawn by the panel, over the frame
+		repaint(toPanel(changed, cameraX, cameraY, scale));
+	}
+	/**
+	 * converts a region of the plane to the smallest region of the panel holding it
+	 * @param region region of the plane
+	 * @param cameraX camera view
+	 * @param cameraY camera view
+	 * @param scale scale of the camera view
+	 * @return the region of the panel
+	 */
+	static Rectangle toPanel(Rectangle2D region, double cameraX, double cameraY, double scale) {
+		int x1 = (int)Math.floor((region.getMinX()-cameraX)*scale);
+		int y1 = (int)Math.floor((region.getMinY()-cameraY)*scale);
+		int x2 = (int)Math.ceil((region.getMaxX()-cameraX)*scale);
+		int y2 = (int)Math.ceil((region.getMaxY()-cameraY)*scale);
+		return new Rectangle(x1, y1, x2-x1, y2-y1);
+	}
+	/**
+	 * converts a position on the panel to a position in the plane,
+	 * using the scale and the position of the camera view
+	 * @param x x coordinate on the panel
+	 * @param y y coordinate on the panel
+	 * @return the corresponding point in the plane
+	 */
+	Point2D.Double toWorld(double x, double y) {
+		return new Point2D.Double(x/scale+cameraX, y/scale+cameraY);
+	}
+	/**
+	 * adjusts the scale of the camera view
 	 * to zoom in or out
 	 * @param s amount by which to scale up or down
 	 */
@@ -610,48 +809,49 @@ public class Lab extends JPanel {
 		}
 	}
 	/**
-	 * draws all the active components on the plane according to their position
-	 * @param g graphics component
-	 * @param components list of all the active components
+	 * paints the last frame of the renderer, then the selection rectangle and the bounding boxes
+	 * shown while dragging over it, they follow the mouse without waiting for a new frame
+	 * @param g0 graphics component of the panel
 	 */
-	public void drawComponents(Graphics2D g, ArrayList<GameComponent> components) {
-																				
-		for (int i = 0; i < components.size(); i++) {
-			
-			//set brush
-			g.setColor(components.get(i).getColor());
-			//width of the brush
-	        int wid = 2;
-	        if (components.get(i).isSelected())	//make the brush larger for selected components
-	        	wid = 3;
-	        
-	        g.setStroke(new BasicStroke(wid, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-	        
-	        //makes the lines more smooth
-	        RenderingHints rh = new RenderingHints(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-	        g.setRenderingHints(rh);
-	        
-	        //rectangle bounding the camera view
-			Rectangle viewRec = new Rectangle(0, 0, w, h);
+	void drawPlane(Graphics2D g0) {
+		
+		renderer.paintFrame(g0, cameraX, cameraY, scale);
+		
+		Graphics2D g = (Graphics2D)g0.create();
+		g.scale(scale, scale);
+		g.translate(-cameraX, -cameraY);
+		g.setRenderingHints(ANTIALIASING);
+		
+		//draw the selection rectangle (if any)
+		g.setColor(Color.YELLOW.brighter());
+		g.setStroke(SELECTIONSTROKE);
+		g.draw(selectionRec);
+		
+		/*
+		 * when a component is being dragged, show the bounding boxes of all the active components
+		 * to let the user know where he can move the objects
+		 */
+		if (draggingComp) {
+			//only the part of the plane being repainted is drawn
+			Rectangle viewRec = getViewRec();
+			if (g.getClipBounds() != null)
+				viewRec = viewRec.intersection(g.getClipBounds());
 			
-			//draw the current component using its draw method
-	        components.get(i).draw(g, viewRec);	//pass rectangle object of the view to only redraw what is within view for more efficiency
-
-	        /*
-	         * when a component is being dragged, show the bounding boxes of all the active components
-	         * to let the user know where he can move the objects
-	         */
-	        if (draggingComp) {	
-	        	
-	        	//the bounding box is shown with a yellow dashed line
-	        	g.setColor(Color.YELLOW);
-	 	        float dash1[] = {5.0f};
-		        BasicStroke dashed = new BasicStroke(1.0f,BasicStroke.CAP_BUTT,BasicStroke.JOIN_MITER,5.0f, dash1, 0.0f);
-	        	g.setStroke(dashed);
-	        	
-	        	g.draw(components.get(i).getBox());	
-	        }
+			//the bounding box is shown with a yellow dashed line
+			g.setColor(Color.YELLOW);
+			g.setStroke(DASHEDSTROKE);
+			for (int i = 0; i < activeComponents.size(); i++) {
+				if (activeComponents.get(i).getBox().intersects(viewRec))
+					g.draw(activeComponents.get(i).getBox());
+			}
 		}
+		g.dispose();
+	}
+	/**
+	 * @return the rectangle bounding the camera view, in the plane
+	 */
+	Rectangle getViewRec() {
+		return new Rectangle((int)Math.floor(cameraX), (int)Math.floor(cameraY), w+1, h+1);
 	}
 	/**
 	 * draws all the markers (if any) on the edges of the camera view
@@ -697,26 +897,30 @@ public class Lab extends JPanel {
 			
 			for (int i = 0; i < activeComponents.size(); i++) {
 				
-				if (activeComponents.get(i).getPosition().getY() < 0) {
-					double x = activeComponents.get(i).getPosition().getX();
+				//position of the component relative to the camera view
+				double viewX = activeComponents.get(i).getPosition().getX()-cameraX;
+				double viewY = activeComponents.get(i).getPosition().getY()-cameraY;
+				
+				if (viewY < 0) {
+					double x = viewX;
 					if (x < 0)	x = 0;
 					else if (x > w) x = w-MARKERSIZE;
 					markers.add(new Point((int)x, 0));
 				}
-				else if (activeComponents.get(i).getPosition().getY() > h) {
-					double x = activeComponents.get(i).getPosition().getX();
+				else if (viewY > h) {
+					double x = viewX;
 					if (x < 0)	x = 0;
 					else if (x > w) x = w-MARKERSIZE;
 					markers.add(new Point((int)x, h-MARKERSIZE));
 				}
-				else if (activeComponents.get(i).getPosition().getX() < 0) {
-					double y = activeComponents.get(i).getPosition().getY();
+				else if (viewX < 0) {
+					double y = viewY;
 					if (y < 0)	y = 0;
 					else if (y > h) y = h;
 					markers.add(new Point(0, (int)y));
 				}
-				else if (activeComponents.get(i).getPosition().getX() > w) {
-					double y = activeComponents.get(i).getPosition().getY();
+				else if (viewX > w) {
+					double y = viewY;
 					if (y < 0)	y = 0;
 					else if (y > h) y = h;
 					markers.add(new Point(w-MARKERSIZE, (int)y));	
@@ -746,228 +950,379 @@ public class Lab extends JPanel {
 	/**
 	 * checks if two components are about to overlap, using their bounding boxes
 	 * @param components list of active components
-	 * @param deltaX amount by which the component is about to be moved in the x direction
-	 * @param deltaY amount by which the component is about to be moved in the y direction
+	 * @param deltaX amount by which the component is about to be moved in the x direction of the plane
+	 * @param deltaY amount by which the component is about to be moved in the y direction of the plane
 	 * @param current index of the component that is currently being moved
 	 * @return true if they are about to overlap, false otherwise
 	 */
-	public boolean overlap(ArrayList<GameComponent> components, int deltaX, int deltaY, int current) {
+	public boolean overlap(ArrayList<GameComponent> components, double deltaX, double deltaY, int current) {
+		
+		GameComponent moving = components.get(current);
 		
 		//components can go through refractive zones, so do not check overlap in this case
-		if (components.get(current).getType().equals("RefractiveZone"))
+		if (isZone(moving))
 			return false;
 		
+		//only the components near the box before or after the move can overlap it
+		Rectangle2D.Double moved = new Rectangle2D.Double(moving.getBox().getX()+deltaX, moving.getBox().getY()+deltaY, moving.getBox().getWidth(), moving.getBox().getHeight());
+		Rectangle area = moved.getBounds();
+		area.add(moving.getBox());
+		
 		//check if rectangle +delta intersects, if yes stop
-		for (int i = 0; i < components.size(); i++) {
+		for (int i : getBroadPhase(components).find(area)) {
 			
 			if (i == current)
 				continue;
 			
 			Rectangle rec = components.get(i).getBox().getBounds();
 			
-			if (components.get(i).getType().equals("RefractiveZone")) {
+			if (isZone(components.get(i))) {
 				
-				if (rec.contains(components.get(current).getBox()) || !rec.intersects(components.get(current).getBox()) || !released.get(current) || resizingRectanle)
+				if (rec.contains(moving.getBox()) || !rec.intersects(moving.getBox()) || !released.get(current) || resizingRectanle)
 					continue;
 				else return true;
 			}
-			else if (components.get(current).contact(rec, deltaX, deltaY)) 
+			else if (moving.contact(rec, deltaX, deltaY)) 
 					return true;
 		}
 		
 		return false;
 	}
+	/**
+	 * @param comp a game component
+	 * @return true if the component is a plain refractive zone, lenses and prisms are solid
+	 */
+	private boolean isZone(GameComponent comp) {
+		return comp.getClass() == RefractiveZone.class;
+	}
+	/**
+	 * finds the components whose box may be near a point of the plane
+	 * @param components list of components
+	 * @param point the point
+	 * @param reach greatest distance between the point and a box
+	 * @return the indices of the components, in increasing order
+	 */
+	private int[] nearby(ArrayList<GameComponent> components, Point2D.Double point, int reach) {
+		
+		Rectangle area = new Rectangle((int)Math.floor(point.getX())-reach, (int)Math.floor(point.getY())-reach, 2*reach+1, 2*reach+1);
+		return getBroadPhase(components).find(area);
+	}
+	/**
+	 * @param components list of components
+	 * @return the broad phase of the list, a new one if the list is not the one of the last check
+	 */
+	private BroadPhase getBroadPhase(ArrayList<GameComponent> components) {
+		
+		if (broadPhase.getComponents() != components)	//checking for a reference match
+			broadPhase = new BroadPhase(components);
+		
+		return broadPhase;
+	}
 	/**
 	 * only applies to refractive zones
 	 * checks if any 2 zones intersect, and adjusts their positions consequently
 	 * also updates the values of the outer refractive indices of each zone 
 	 */
 	public void indices() {	
+		
+		BroadPhase phase = getBroadPhase(activeComponents);
+		phase.update();
 
 		for (int i = 0; i < activeComponents.size(); i++) {
 			
-			if (activeComponents.get(i) instanceof RefractiveZone) {
+			if (!(activeComponents.get(i) instanceof RefractiveZone))
+				continue;
+			
+			RefractiveZone zone1 = (RefractiveZone)activeComponents.get(i);
+			
+			//only the zones near zone1 can overlap it
+			for (int n : phase.find(zone1.getBox())) {
 				
-				RefractiveZone zone1 = (RefractiveZone)activeComponents.get(i);
+				if (!isZone(activeComponents.get(n)) || activeComponents.get(n) == zone1)
+					continue;
 				
-				//tells whether the current zone is inside another zone or not
-				boolean outside = true;
-				//distance between the current zone and its closest enclosing zone (initialized to a big value)
-				double innerMostDis = BIG;
-					
-				for (int n = 0; n < activeComponents.size(); n++) {
-					
-					if (activeComponents.get(n).getType().equals("RefractiveZone") && activeComponents.get(n) != zone1) {
-						
-						RefractiveZone zone2 = (RefractiveZone)activeComponents.get(n);	
-							
-						//the center point of zone1
-						Point2D.Double center1 = new Point2D.Double(zone1.getBox().getCenterX(), zone1.getBox().getCenterY());
-
-						//if the 2 zones overlap...						
-						if (zone1.getBox().intersects(zone2.getBox())) {
-
-							if (zone1.getWidth() > zone2.getWidth() && zone1.getHeight() > zone2.getHeight()) {
-								//switch, zone1 should be the smallest, to fit in zone2
-								try {
-									RefractiveZone temp = (RefractiveZone)zone1.clone();
-									zone1 = (RefractiveZone)zone2.clone();
-									zone2 = temp;
-								}
-								catch (Exception e) {
-								}
-							}
-							
-							//if zone1 fits into zone2, push it inside using the reposition method
-							if (zone2.getBox().contains(center1) && zone1.getType().equals("RefractiveZone")) {	//if more inside..
-								while (!zone2.getBox().contains(zone1.getBox())) //push in
-									reposition(zone1, zone2, true);
-							}
-							else if (zone2.getBox().intersects(zone1.getBox()) && !zone2.getBox().contains(center1)) {	//if more outside
-								while (zone1.getBox().intersects(zone2.getBox())) 	//otherwise, push out
-									reposition(zone1, zone2, false);
-							}
-						}
-						
-						if (zone2.getBox().contains(zone1.getBox())) {
-							outside = false;	//if zone is at least in one other zone, it is not outside 
-								
-							/*
-							 * if zone1 is inside zone2
-							 * set the outer index of the inner zone to that of the outer zone
-							 */
-							if (center1.distance(zone2.getPosition()) < innerMostDis) {
-								
-								zone1.setOuterIndex(zone2.getRefractionIndex());
-								innerMostDis = center1.distance(zone2.getPosition());
-							}
-						}
+				RefractiveZone zone2 = (RefractiveZone)activeComponents.get(n);	
+				
+				//the center point of zone1
+				Point2D.Double center1 = new Point2D.Double(zone1.getBox().getCenterX(), zone1.getBox().getCenterY());
+				
+				/*
+				 * if the 2 zones overlap, the smallest one is fitted in or out of the other one,
+				 * that is done when zone1 is the smallest
+				 */
+				if (!zone1.getBox().intersects(zone2.getBox()) || (zone1.getWidth() > zone2.getWidth() && zone1.getHeight() > zone2.getHeight()))
+					continue;
+				
+				boolean moved = false;
+				
+				//if zone1 fits into zone2, push it inside using the reposition method
+				if (zone2.getBox().contains(center1) && isZone(zone1)) {	//if more inside..
+					while (!zone2.getBox().contains(zone1.getBox())) { //push in
+						reposition(zone1, zone2, true);
+						moved = true;
+					}
+				}
+				else if (!zone2.getBox().contains(center1)) {	//if more outside
+					while (zone1.getBox().intersects(zone2.getBox())) { 	//otherwise, push out
+						reposition(zone1, zone2, false);
+						moved = true;
 					}
 				}
 				
-				if (outside)
-					zone1.setOuterIndex(1.0);
+				//zone1 moved, the zones it comes near are found from its new box
+				if (moved)
+					phase.refit(i);
+			}
+		}
+		
+		/*
+		 * the outer index of each zone is the index of the innermost zone around it,
+		 * the tree only looks again for the enclosing zone of the zones that moved
+		 */
+		ZoneTree tree = getZoneTree(activeComponents);
+		tree.update();
+		
+		for (GameComponent comp : activeComponents) {
+			
+			if (comp instanceof RefractiveZone) {
+				RefractiveZone outer = tree.getParent((RefractiveZone)comp);
+				((RefractiveZone)comp).setOuterIndex((outer == null) ? 1.0 : outer.getRefractionIndex());
 			}
 		}
 	}
+	/**
+	 * @param components list of components
+	 * @return the containment tree of the zones of the list, a new one if the list is not the one of the last call
+	 */
+	private ZoneTree getZoneTree(ArrayList<GameComponent> components) {
+		
+		if (zoneTree.getComponents() != components)	//checking for a reference match
+			zoneTree = new ZoneTree(components);
+		
+		return zoneTree;
+	}
 	/**
 	 * updates the position of one component relative to another
-	 * such that its position is a valid one
+	 * such that its position is a valid one. The component is moved
+	 * in one step by the smallest translation that separates the boxes
 	 * @param comp1 first game component
 	 * @param comp2 second game component
 	 * @param pushIn tells whether comp1 should be pushed in or out of comp2
 	 */
 	public void reposition(GameComponent comp1, GameComponent comp2, boolean pushIn) {
 		
-		//incremental amount by which to reposition comp1 in the x direction
-		int dx = 1;
-		//incremental amount by which to reposition comp1 in the y direction
-		int dy = 1;
-		//incremental amount by which to resize comp2
+		//amount by which a zone is made smaller than the zone it is fitted into
 		int dz = 20;
 		
 		//if the 2 components are refractive zones, and one should be fitted into the other
-		if (pushIn && comp1.getType().equals("RefractiveZone") && comp2.getType().equals("RefractiveZone")) {
+		if (pushIn && isZone(comp1) && isZone(comp2)) {
 
 			RefractiveZone zone1 = (RefractiveZone)comp1;
 			RefractiveZone zone2 = (RefractiveZone)comp2;
 
 			if (zone1.getWidth() >= zone2.getWidth())
-				zone1.setWidth(zone1.getWidth()-dz);
+				zone1.setWidth(zone2.getWidth()-dz);
 			if (zone1.getHeight() >= zone2.getHeight())
-				zone1.setHeight(zone1.getHeight()-dz);
-			
-			if (zone1.getPosition().getX() > zone2.getPosition().getX()+dz/2)
-				dx *= -1;
-			if (zone1.getPosition().getY() > zone2.getPosition().getY()+dz/2)
-				dy *= -1;
+				zone1.setHeight(zone2.getHeight()-dz);
 			
-			zone1.setPosition(new Point2D.Double((zone1.getPosition().getX()+dx), (zone1.getPosition().getY()+dy)));
+			zone1.initBox();
+			translate(zone1, containment(zone1.getBox(), zone2.getBox()));
 		}
 		else {
-			//reposition comp1 away from comp2
+			//the shortest of the translations to each side of comp2
+			int[] shortest = null;
 			
-			if (comp1.getBox().getMinX() < comp2.getBox().getMinX())
-				dx *= -1;
-			if (comp1.getBox().getMinY() < comp2.getBox().getMinY())
-				dy *= -1;
+			for (int[] exit : exits(comp1.getBox(), comp2.getBox())) {
+				if (shortest == null || Math.abs(exit[0])+Math.abs(exit[1]) < Math.abs(shortest[0])+Math.abs(shortest[1]))
+					shortest = exit;
+			}
 			
-			comp1.setPosition(new Point2D.Double((comp1.getPosition().getX()+dx), (comp1.getPosition().getY()+dy)));
+			translate(comp1, shortest);
 		}
 	}
 	/**
 	 * spreads out components on the plane to put them in valid positions
-	 * that is, so that no 2 components overlap
+	 * that is, so that no 2 components overlap and no component lies across
+	 * the border of a refractive zone. A component in an invalid position is moved
+	 * by the smallest translation that takes it out of one of the components it
+	 * overlaps (or fully into a zone) and puts it in a valid position, a few passes
+	 * settle the overlaps that remain when no such translation exists
 	 */
 	public void repositionAll() {
 		
-		for (int i = 0; i < activeComponents.size(); i++) {
+		for (int pass = 0; pass < SOLVERPASSES; pass++) {
+			
+			boolean moved = false;
 			
-			int safetyCount = 0;
+			/*
+			 * the boxes are indexed once per pass, a component that comes near another
+			 * one after it was indexed is found by the next pass
+			 */
+			BroadPhase phase = getBroadPhase(activeComponents);
+			phase.update();
 			
-			while (overlap(activeComponents, 0, 0, i) && safetyCount < BIG/10) {
+			for (int i = 0; i < activeComponents.size(); i++) {
 				
-				for (int j = 0; j < activeComponents.size(); j++) {
-					
-					if (j == i)
-						continue;
-					
-					GameComponent comp1 = activeComponents.get(i);
-					GameComponent comp2 = activeComponents.get(j);
-					GameComponent zone;
-					GameComponent comp;
-					
-					if (comp1.getType().equals("RefractiveZone") ^ comp2.getType().equals("RefractiveZone")) {
-						
-						zone = (comp1.getType().equals("RefractiveZone")) ? comp1 : comp2;
-						comp = (comp1.getType().equals("RefractiveZone")) ? comp2 : comp1;
-						
-						while (zone.getBox().intersects(comp.getBox()) && !zone.getBox().contains(comp.getBox())) 
-							reposition(comp, zone, false);
-					}
-					else {
-						
-						while(comp1.getBox().intersects(comp2.getBox())) 
-							reposition(comp1, comp2, false);	
-					}
+				GameComponent comp = activeComponents.get(i);
+				
+				//components can go through refractive zones, zones are not moved
+				if (isZone(comp))
+					continue;
+				
+				//a component that cannot be moved by the user is not moved if the one it overlaps can
+				if (!comp.isMoveable() && pushedAway(i, phase)) {
+					moved = true;
+					continue;
 				}
 				
-				safetyCount++;
+				int[] move = nearestValid(i, phase);
+				
+				if (move[0] != 0 || move[1] != 0) {
+					translate(comp, move);
+					moved = true;
+				}
 			}
-
-			/*
-			 * if the algorithm has been trying for too long, put the application
-			 * in its backup state
-			 */
-			if (safetyCount == BIG/10) {	
-				load(backupFile);	
-				backupFile.delete();
-				repaint();
+			
+			if (!moved)
 				return;
-			}
 		}
-		
-		/*
-		 * if the backup file was not used, delete it
-		 * another more recent one will be created elsewhere
-		 */
-		if (backupFile != null)
-			backupFile.delete();
 	}
 	/**
-	 * creates a backfile that saves the current
-	 * state of the application
+	 * @param current index of a component
+	 * @param phase the broad phase of the active components
+	 * @return true if the component overlaps a component that the user can move
 	 */
-	public void createBackup() {
+	private boolean pushedAway(int current, BroadPhase phase) {
 		
-		backupFile = new File("."+File.separator+"user"+File.separator+"temp");	
+		Rectangle box = activeComponents.get(current).getBox();
 		
-		try {
-			backupFile.createNewFile();	
-			save(backupFile);
+		for (int j : phase.find(box)) {
+			if (conflict(current, box, j) && activeComponents.get(j).isMoveable() && !isZone(activeComponents.get(j)))
+				return true;
 		}
-		catch (Exception ex) {
+		return false;
+	}
+	/**
+	 * finds the shortest translation that puts a component in a valid position.
+	 * The translations tried are the ones that take the component out of one of
+	 * the components it overlaps, followed by the ones that take it out of the
+	 * components it overlaps after that move, and so on, shortest first
+	 * @param current index of the component
+	 * @param phase the broad phase of the active components
+	 * @return the translation in x and y, the shortest move out of one overlap if no valid position was found
+	 */
+	private int[] nearestValid(int current, BroadPhase phase) {
+		
+		Rectangle box = activeComponents.get(current).getBox();
+		
+		PriorityQueue<int[]> queue = new PriorityQueue<>(16, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] a, int[] b) {
+				return (Math.abs(a[0])+Math.abs(a[1])) - (Math.abs(b[0])+Math.abs(b[1]));
+			}
+		});
+		HashSet<Point> tried = new HashSet<>();
+		queue.add(new int[] {0, 0});
+		int[] fallback = null;
+		
+		for (int count = 0; count < SOLVERTRIES && !queue.isEmpty(); count++) {
+			
+			int[] move = queue.poll();
+			Rectangle target = new Rectangle(box);
+			target.translate(move[0], move[1]);
+			
+			boolean valid = true;
+			
+			for (int j : phase.find(target)) {
+				
+				if (!conflict(current, target, j))
+					continue;
+				
+				valid = false;
+				Rectangle rec = activeComponents.get(j).getBox();
+				
+				ArrayList<int[]> steps = exits(target, rec);
+				if (isZone(activeComponents.get(j)) && containment(target, rec) != null)
+					steps.add(containment(target, rec));
+				
+				for (int[] step : steps) {
+					int[] next = {move[0]+step[0], move[1]+step[1]};
+					if (tried.add(new Point(next[0], next[1])))
+						queue.add(next);
+				}
+			}
+			
+			if (valid)
+				return move;
+			
+			if (fallback == null)
+				fallback = queue.peek();
 		}
+		
+		return (fallback == null) ? new int[] {0, 0} : fallback;
+	}
+	/**
+	 * checks if a component placed at some box would be in an invalid position relative to another one
+	 * @param current index of the component
+	 * @param box the box of the component
+	 * @param other index of the other component
+	 * @return true if the component would overlap the other one, or lie across the border of a zone
+	 */
+	private boolean conflict(int current, Rectangle box, int other) {
+		
+		Rectangle rec = activeComponents.get(other).getBox();
+		
+		if (other == current || !box.intersects(rec))
+			return false;
+		
+		if (isZone(activeComponents.get(other)))
+			return !rec.contains(box) && released.get(current) && !resizingRectanle;
+		
+		return true;
+	}
+	/**
+	 * finds the translations that move a box out of another one, to each side of it
+	 * @param box1 the box to move
+	 * @param box2 the box to move away from
+	 * @return the translations in x and y, to the left, right, top and bottom of box2
+	 */
+	private ArrayList<int[]> exits(Rectangle box1, Rectangle box2) {
+		
+		ArrayList<int[]> exits = new ArrayList<>();
+		exits.add(new int[] {box2.x - (box1.x+box1.width), 0});
+		exits.add(new int[] {(box2.x+box2.width) - box1.x, 0});
+		exits.add(new int[] {0, box2.y - (box1.y+box1.height)});
+		exits.add(new int[] {0, (box2.y+box2.height) - box1.y});
+		
+		return exits;
+	}
+	/**
+	 * finds the smallest translation that moves a box inside another one
+	 * @param box1 the box to move
+	 * @param box2 the box to move into
+	 * @return the translation in x and y, null if box1 does not fit in box2
+	 */
+	private int[] containment(Rectangle box1, Rectangle box2) {
+		
+		if (box1.width > box2.width || box1.height > box2.height)
+			return null;
+		
+		int dx = Math.max(0, box2.x - box1.x) + Math.min(0, (box2.x+box2.width) - (box1.x+box1.width));
+		int dy = Math.max(0, box2.y - box1.y) + Math.min(0, (box2.y+box2.height) - (box1.y+box1.height));
+		
+		return new int[] {dx, dy};
+	}
+	/**
+	 * moves a component in the plane
+	 * @param comp the component
+	 * @param delta the translation in x and y, nothing is done if it is null
+	 */
+	private void translate(GameComponent comp, int[] delta) {
+		
+		if (delta == null)
+			return;
+		
+		comp.setPosition(new Point2D.Double(comp.getPosition().getX()+delta[0], comp.getPosition().getY()+delta[1]));
 	}
 	/**
 	 * save the current state in the given file
@@ -976,11 +1331,7 @@ public class Lab extends JPanel {
 	public void save(File file) {
 		
 		try {
-			ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
-			out.writeObject(activeComponents);
-			out.writeObject(released);
-			out.writeObject(markers);
-			out.close();
+			new SceneFile(activeComponents, released, markers).write(file);
 		}
 		catch (Exception ex) {
 		}
@@ -1006,11 +1357,7 @@ public class Lab extends JPanel {
 			if (jfc.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
 				
 				File project = jfc.getSelectedFile();
-				ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(project));
-				out.writeObject(activeComponents);
-				out.writeObject(released);
-				out.writeObject(markers);
-				out.close();
+				new SceneFile(activeComponents, released, markers).write(project);
 				
 				//add the extension to the file if it does not already have it
 				if (/*!lvlEditionMode &&*/ !project.getName().contains(".op"))
@@ -1020,6 +1367,95 @@ public class Lab extends JPanel {
 		catch (Exception ex) {
 		}
 	}
+	/**
+	 * records the changes made to the components in the journal, only the components that changed are written
+	 */
+	void record() {
+		if (journal != null)
+			journal.record(activeComponents, released);
+	}
+	/**
+	 * ends the edit in progress, the changes made since the last edit become one step of the history
+	 */
+	void commitEdit() {
+		if (history != null)
+			history.commit(activeComponents, released);
+	}
+	/**
+	 * undoes the last edit of the components
+	 */
+	void undo() {
+		if (history != null && history.undo(activeComponents, released))
+			afterHistory();
+	}
+	/**
+	 * does again the last edit undone
+	 */
+	void redo() {
+		if (history != null && history.redo(activeComponents, released))
+			afterHistory();
+	}
+	/**
+	 * updates what depends on the components once the history changed them
+	 */
+	private void afterHistory() {
+		indices();
+		history.sync(activeComponents, released);
+		refresh();
+	}
+	/**
+	 * forgets the edits made before a project was loaded
+	 */
+	void resetHistory() {
+		if (history != null)
+			history.reset(activeComponents, released);
+	}
+	/**
+	 * offers to recover the optical setup of a lab that was not left normally,
+	 * it is rebuilt from the journal the lab left behind. The journal is kept when
+	 * the user closes the dialog without answering, so it is offered again next time.
+	 * A journal that cannot be replayed is moved aside to a .bad file
+	 */
+	void recover() {
+		
+		if (!JOURNALFILE.exists())
+			return;
+		
+		int answer = JOptionPane.showConfirmDialog(null, "Your last optical setup was not saved.\nWould you like to recover it?", 
+				"Recover", JOptionPane.YES_NO_OPTION);
+		
+		if (answer == JOptionPane.NO_OPTION) {
+			JOURNALFILE.delete();
+			return;
+		}
+		else if (answer != JOptionPane.YES_OPTION)
+			return;
+		
+		try {
+			SceneFile scene = SceneJournal.replay(JOURNALFILE);
+			activeComponents = scene.getComponents();
+			released = scene.getReleased();
+			markers = scene.getMarkers();
+		}
+		catch (Exception ex) {
+			
+			JOptionPane.showMessageDialog(null, "Your last optical setup could not be recovered.\n" + ex.getMessage(), 
+					"Recover", JOptionPane.ERROR_MESSAGE);
+			
+			//the journal is not offered again, it is kept aside in case it is wanted
+			File bad = new File(JOURNALFILE.getPath() + ".bad");
+			bad.delete();
+			if (!JOURNALFILE.renameTo(bad))
+				JOURNALFILE.delete();
+		}
+	}
+	/**
+	 * deletes the journal when the lab is left normally, the user was asked whether to save the optical setup
+	 */
+	void discardJournal() {
+		if (journal != null)
+			journal.discard();
+	}
 	/**
 	 * load the given file
 	 * @param file
@@ -1027,14 +1463,14 @@ public class Lab extends JPanel {
 	public void load(File file) {
 		
 		try {
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
-			activeComponents = (ArrayList<GameComponent>)in.readObject();		//read in the same order it was saved
-			released = (ArrayList<Boolean>)in.readObject();
-			markers = (ArrayList<Point>)in.readObject();
+			SceneFile scene = SceneFile.read(file);
+			activeComponents = scene.getComponents();
+			released = scene.getReleased();
+			markers = scene.getMarkers();
+			resetHistory();
 			scrollContainer.removeAll();
 			initializeAvailableComponents();
 			makeScrollPanel();
-			in.close();
 		}
 		catch (Exception ex) {
 		}
@@ -1055,15 +1491,17 @@ public class Lab extends JPanel {
 			if (jfc.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
 				
 				File project = jfc.getSelectedFile();
-				ObjectInputStream in = new ObjectInputStream(new FileInputStream(project));
-				activeComponents = (ArrayList<GameComponent>)in.readObject();		//read in the same order it was saved
-				released = (ArrayList<Boolean>)in.readObject();
-				markers = (ArrayList<Point>)in.readObject();
+				SceneFile scene = SceneFile.read(project);
+				activeComponents = scene.getComponents();
+				released = scene.getReleased();
+				markers = scene.getMarkers();
+				resetHistory();
 				scrollContainer.removeAll();
 				initializeAvailableComponents();
 				makeScrollPanel();
-				in.close();
-				repaint();
+				cameraX = 0;
+				cameraY = 0;
+				refresh();
 			}
 		}
 		catch (Exception ex) {
@@ -1247,13 +1685,21 @@ public class Lab extends JPanel {
             	
             	//if an available component is clicked, add it to the list of active components
             	if (mouse.getClickCount() == 1) {
-            		createBackup();
             		scrollPanel.labelClicked = mouse.getY() / 128;
+            		int count = activeComponents.size();
             		scrollPanel.addActiveComponent(scrollPanel.labelClicked, getWidth(), getHeight());
+            		
+            		//the new component is placed on the panel, move it to the same place in the plane
+            		if (activeComponents.size() > count) {
+            			GameComponent added = activeComponents.get(activeComponents.size()-1);
+            			Point2D.Double p = toWorld(added.getPosition().getX(), added.getPosition().getY());
+            			added.setPosition(p);
+            		}
             		released.add(true);
             		indices();
             		repositionAll();
-            		repaint();
+            		refresh();
+            		commitEdit();
             	}
 			}
 		});
@@ -1312,6 +1758,7 @@ public class Lab extends JPanel {
 	 */
 	void setActiveComponents(ArrayList<GameComponent> activeComponents) {
 		this.activeComponents = (ArrayList<GameComponent>) activeComponents.clone();
+		render(null);
 	}
 	/**
 	 * sets the list of active components to a new list, with subordinate properties
@@ -1323,6 +1770,7 @@ public class Lab extends JPanel {
 		this.activeComponents = (ArrayList<GameComponent>) activeComponents.clone();
 		this.released = (ArrayList<Boolean>)released.clone();
 		this.markers = (ArrayList<Point>)markers.clone();
+		render(null);
 	}
 	/**
 	 * adds the game menu in the top left corner of this Lab panel 
@@ -9,8 +9,6 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Scanner;
 
-import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JTextArea;
 
@@ -111,18 +109,18 @@ public class Learn extends LevelSelection {
 		BufferedImage infoPicture = null;
 		
 		try {
-			infoPicture = ImageIO.read(new File("."+File.separator+"learning"+File.separator+"infoPicture"+infoNumber+".PNG"));
+			infoPicture = ImageCache.read(new File("."+File.separator+"learning"+File.separator+"infoPicture"+infoNumber+".PNG"));
 		} catch (IOException e) {
 			// TODO Auto-generated catch block
 			try {
-				infoPicture = ImageIO.read(new File("."+File.separator+"learning"+File.separator+"infoPicture"+infoNumber+".JPG"));
+				infoPicture = ImageCache.read(new File("."+File.separator+"learning"+File.separator+"infoPicture"+infoNumber+".JPG"));
 			} catch (IOException e1) {
 				// TODO Auto-generated catch block
 				e1.printStackTrace();
 			}
 		}
 		
-		infoLabel = new JLabel(new ImageIcon(infoPicture));
+		infoLabel = new JLabel(ImageCache.getIcon(infoPicture));
 		return infoLabel;
 	}
 	
@@ -133,12 +131,12 @@ public class Learn extends LevelSelection {
 	@Override
 	void loadImages(){
 		try {
-			background = ImageIO.read(new File("./images/learningcenter.png"));
-			levelIcon = ImageIO.read(new File("./images/selectionframe.png"));
-			lockIcon = ImageIO.read(new File("./images/lock.png"));
-			leftIcon = ImageIO.read(new File("./images/leftarrow.png"));
-			rightIcon = ImageIO.read(new File("./images/rightarrow.png"));
-			backIcon = ImageIO.read(new File("./images/backicon.png"));
+			background = ImageCache.read(new File("./images/learningcenter.png"));
+			levelIcon = ImageCache.read(new File("./images/selectionframe.png"));
+			lockIcon = ImageCache.read(new File("./images/lock.png"));
+			leftIcon = ImageCache.read(new File("./images/leftarrow.png"));
+			rightIcon = ImageCache.read(new File("./images/rightarrow.png"));
+			backIcon = ImageCache.read(new File("./images/backicon.png"));
 		}
 				
 		catch(IOException ioEx){
@@ -1,26 +1,24 @@
 package userInterface;
 
-import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
-import java.awt.Point;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.util.ArrayList;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
-import javax.imageio.ImageIO;
 import javax.swing.JOptionPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import java.net.URL;
 
@@ -64,6 +62,10 @@ public class Level extends Lab {
 	 * declare the background of the level, is only used for dynamic background
 	 */ 
 	BufferedImage background = null;
+	/**
+	 * thread shared by all the levels to read their components, created on first use
+	 */
+	private static ExecutorService loaderThread;
 	
 	/**
 	 * 
@@ -81,16 +83,9 @@ public class Level extends Lab {
 		getImages();
 		
 		/**
-		 * loads the active components of the selected level
+		 * loads the active components of the selected level in the background
 		 */ 
-		try {
-			ObjectInputStream in = new ObjectInputStream(new FileInputStream(new File("."+File.separator+"levels"+File.separator + level)));
-			setActiveComponents((ArrayList<GameComponent>) in.readObject(), (ArrayList<Boolean>) in.readObject(), (ArrayList<Point>) in.readObject());
-			in.close();
-		}
-		
-		catch (Exception ex) {
-		}
+		loadLevel();
 		
 		/**
 		 * remove available component panel
@@ -128,6 +123,65 @@ public class Level extends Lab {
 		}
 	}
 	
+	/**
+	 * reads the components of the current level on the loader thread, the panel is
+	 * displayed right away and the components appear as soon as they are read
+	 */
+	void loadLevel() {
+		final int level = currentLevel;
+		
+		getLoaderThread().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					final SceneFile scene = readLevel(level);
+					
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							setActiveComponents(scene.getComponents(), scene.getReleased(), scene.getMarkers());
+							repaint();
+						}
+					});
+				}
+				
+				catch (Exception ex) {
+				}
+			}
+		});
+	}
+	
+	/**
+	 * reads a level from the level pack, or from its own file if it is not in the pack
+	 * @param level the number of the level
+	 * @return the level
+	 */
+	static SceneFile readLevel(int level) throws IOException {
+		LevelPack pack = LevelSelection.getPack();
+		
+		if (pack != null && level < pack.size())
+			return pack.read(level);
+		
+		return SceneFile.read(new File("."+File.separator+"levels"+File.separator + level));
+	}
+	
+	/**
+	 * @return a daemon thread that reads the levels one after the other
+	 */
+	private static synchronized ExecutorService getLoaderThread() {
+		if (loaderThread == null) {
+			loaderThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "Level loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return loaderThread;
+	}
+	
 	/**
 	 * An information panel will be displayed in the form of a rounded panel which will
 	 * indicate the predetermined information to the user according to the current
@@ -251,6 +305,7 @@ public class Level extends Lab {
 					activeComponents.get(i).rotate(-1);
 			}
 		}
+		refresh();
 	}
 	
 	/**
@@ -258,7 +313,7 @@ public class Level extends Lab {
 	 */
 	void getImages(){
 		try {
-			background = ImageIO.read(new File("."+File.separator+"images"+File.separator+"Mainmenu.png"));
+			background = ImageCache.read(new File("."+File.separator+"images"+File.separator+"Mainmenu.png"));
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -282,19 +337,12 @@ public class Level extends Lab {
 		w = (int)(getWidth()*1/scale)-scrollPaneSize;
 		h = (int)(getHeight()*1/scale);
 		
-		for (int i = 0; i < activeComponents.size(); i++) {
-			if (activeComponents.get(i) instanceof Ray) 
-				((Ray)activeComponents.get(i)).impact(activeComponents);
-		}
+		render(null);
+		
+		drawPlane((Graphics2D)g0);
 		
 		Graphics2D g = (Graphics2D)g0.create();
 		g.scale(scale, scale);
-
-		g.setColor(Color.YELLOW.brighter());
-    	g.setStroke(new BasicStroke(1, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
-		g.draw(selectionRec);
-		
-		drawComponents(g, activeComponents);	
 		
 		updateMarkers();
 		if (scaling) markers.clear();
@@ -14,7 +14,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 
-import javax.imageio.ImageIO;
+import gameComponents.LevelPack;
+
 import javax.swing.ImageIcon;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
@@ -52,6 +53,11 @@ public class LevelSelection extends JPanel{
 	 *  initialize the user's progress
 	 */
 	static int progress = 0;
+	/**
+	 * the pack of all the levels, only its index is read when it is opened
+	 */
+	private static LevelPack pack;
+	private static boolean packOpened;
 	
 	/**
 	 *  declare the levelIcon image
@@ -125,6 +131,10 @@ public class LevelSelection extends JPanel{
         
 		getProgress();
 		
+		// the number of levels is known from the index of the pack, level 0 is the menu background
+		if (getPack() != null)
+			maxLevel = getPack().size() - 1;
+		
 		setLayout(null);
 		
 		loadImages();
@@ -208,9 +218,17 @@ public class LevelSelection extends JPanel{
 		currentLabel.add(numberLabel);
 		numberLabel.setBounds(45,25,75,75);
 		
+		// display the picture of the level under its number
+		BufferedImage thumbnail = getThumbnail(currentLabel.getDisplayedMnemonic());
+		if (thumbnail != null) {
+			JLabel thumbnailLabel = new JLabel(new ImageIcon(thumbnail));
+			currentLabel.add(thumbnailLabel);
+			thumbnailLabel.setBounds(13,12,LevelPack.THUMBNAILWIDTH,LevelPack.THUMBNAILHEIGHT);
+		}
+		
 		// check if the user can select this level, if not, display a lock on the label
 		if(currentLabel.getDisplayedMnemonic() > progress){
-			JLabel lockLabel = new JLabel(new ImageIcon(lockIcon));
+			JLabel lockLabel = new JLabel(ImageCache.getIcon(lockIcon));
 			currentLabel.add(lockLabel,0);
 			lockLabel.setBounds(100,20,50,75);
 		}
@@ -245,12 +263,12 @@ public class LevelSelection extends JPanel{
 	 */
 	void loadImages(){
 		try {
-			background = ImageIO.read(new File("./images/levelselection.png"));
-			levelIcon = ImageIO.read(new File("./images/selectionframe.png"));
-			lockIcon = ImageIO.read(new File("./images/lock.png"));
-			leftIcon = ImageIO.read(new File("./images/leftarrow.png"));
-			rightIcon = ImageIO.read(new File("./images/rightarrow.png"));
-			backIcon = ImageIO.read(new File("./images/backicon.png"));
+			background = ImageCache.read(new File("./images/levelselection.png"));
+			levelIcon = ImageCache.read(new File("./images/selectionframe.png"));
+			lockIcon = ImageCache.read(new File("./images/lock.png"));
+			leftIcon = ImageCache.read(new File("./images/leftarrow.png"));
+			rightIcon = ImageCache.read(new File("./images/rightarrow.png"));
+			backIcon = ImageCache.read(new File("./images/backicon.png"));
 		}
 				
 		catch(IOException ioEx){
@@ -351,6 +369,34 @@ public class LevelSelection extends JPanel{
 		}
 	}
 	
+	/**
+	 * open the level pack the first time it is needed
+	 * @return the pack of the levels, null if there is none
+	 */
+	static synchronized LevelPack getPack() {
+		if (!packOpened) {
+			packOpened = true;
+			try {
+				pack = LevelPack.open(new File("./levels/pack"));
+			}
+			catch (Exception ex) {
+			}
+		}
+		return pack;
+	}
+	
+	/**
+	 * get the picture of a level from the index of the pack
+	 * @param levelNumber the level
+	 * @return the picture, null if the level is not in the pack
+	 */
+	BufferedImage getThumbnail(int levelNumber){
+		if (getPack() == null || levelNumber >= getPack().size()) {
+			return null;
+		}
+		return getPack().getThumbnail(levelNumber);
+	}
+	
 	/**
 	 * make a new Level panel and displays it on the frame if the user clicks on one of the 
 	 * level label
@@ -401,13 +447,13 @@ public class LevelSelection extends JPanel{
 	 * add the images to their respective Label
 	 */
 	void setLabels(){
-		firstLabel = new JLabel(new ImageIcon(levelIcon));
-		secondLabel = new JLabel(new ImageIcon(levelIcon));
-		thirdLabel = new JLabel(new ImageIcon(levelIcon));
-		fourthLabel = new JLabel(new ImageIcon(levelIcon));
-		fifthLabel = new JLabel(new ImageIcon(levelIcon));
-		leftLabel = new JLabel(new ImageIcon(leftIcon));
-		rightLabel = new JLabel(new ImageIcon(rightIcon));
-		backLabel = new JLabel(new ImageIcon(backIcon));
+		firstLabel = new JLabel(ImageCache.getIcon(levelIcon));
+		secondLabel = new JLabel(ImageCache.getIcon(levelIcon));
+		thirdLabel = new JLabel(ImageCache.getIcon(levelIcon));
+		fourthLabel = new JLabel(ImageCache.getIcon(levelIcon));
+		fifthLabel = new JLabel(ImageCache.getIcon(levelIcon));
+		leftLabel = new JLabel(ImageCache.getIcon(leftIcon));
+		rightLabel = new JLabel(ImageCache.getIcon(rightIcon));
+		backLabel = new JLabel(ImageCache.getIcon(backIcon));
 	}
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package userInterface;
 
 import java.awt.*;
+import java.io.File;
 import javax.swing.*;
 
 /**
@@ -57,6 +58,9 @@ public class MainFrame extends JApplet {
 	 * @param args
 	 */
 	public static void main(String[] args){
+		//the images of the other panels are read while the main menu is shown
+		ImageCache.preload(new File("."+File.separator+"images"), new File("."+File.separator+"learning"));
+		
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
 			public void run() {
@@ -83,6 +87,10 @@ public class MainFrame extends JApplet {
 	 * @param progress current progress of the user, i.e. the level he wants to go to
 	 */
 	static void changePanel(int panel, int progress) {
+		// the lab being left was saved or dropped by the user, its journal is not needed anymore
+		if (currentPanel instanceof Lab)
+			((Lab)currentPanel).discardJournal();
+		
 		// changes to the panel
 		switch(panel){
 		// remove the current panel from the frame
@@ -12,7 +12,6 @@ import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 
 /**
@@ -99,11 +98,11 @@ class MainMenu extends JPanel {
 	void setButtons(){
 		try {
 			// import image for background
-			background = ImageIO.read(new File("."+File.separator+"images"+File.separator+"Mainmenu.png"));
+			background = ImageCache.read(new File("."+File.separator+"images"+File.separator+"Mainmenu.png"));
 			
 			//set and import for the storyline label
-			SLicon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"SLicon.png"));
-			SLLabel = new JLabel(new ImageIcon(SLicon));			
+			SLicon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"SLicon.png"));
+			SLLabel = new JLabel(ImageCache.getIcon(SLicon));			
 			SLLabel.addMouseListener(new MouseAdapter() {
 				
 				@Override
@@ -121,8 +120,8 @@ class MainMenu extends JPanel {
 			SLLabel.setBorder(BorderFactory.createRaisedSoftBevelBorder());
 			
 			//set and import for the learningcenter label
-			LCicon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"LCicon.png"));
-			LCLabel = new JLabel(new ImageIcon(LCicon));
+			LCicon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"LCicon.png"));
+			LCLabel = new JLabel(ImageCache.getIcon(LCicon));
 			LCLabel.addMouseListener(new MouseAdapter() {
 
 				@Override
@@ -140,8 +139,8 @@ class MainMenu extends JPanel {
 			LCLabel.setBorder(BorderFactory.createRaisedSoftBevelBorder());
 			
 			//set and import for the laboratory label
-			LBicon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"LBicon.png"));
-			LBLabel = new JLabel(new ImageIcon(LBicon));
+			LBicon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"LBicon.png"));
+			LBLabel = new JLabel(ImageCache.getIcon(LBicon));
 			LBLabel.addMouseListener(new MouseAdapter() {
 
 				@Override
@@ -159,8 +158,8 @@ class MainMenu extends JPanel {
 			LBLabel.setBorder(BorderFactory.createRaisedSoftBevelBorder());
 			
 			//set and import for the quit label
-			QTicon = ImageIO.read(new File("."+File.separator+"images"+File.separator+"QTicon.png"));
-			QTLabel = new JLabel(new ImageIcon(QTicon));
+			QTicon = ImageCache.read(new File("."+File.separator+"images"+File.separator+"QTicon.png"));
+			QTLabel = new JLabel(ImageCache.getIcon(QTicon));
 			QTLabel.addMouseListener(new MouseAdapter() {
 	            
 	            @Override
@@ -0,0 +1,557 @@
+package userInterface;
+
+import gameComponents.*;
+
+import java.awt.*;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import javax.swing.SwingUtilities;
+
+/**
+ *
+ * Virtual Optics
+ * <p>
+ * This class traces the rays and draws the plane of a Lab panel on a thread of its own,
+ * so the panel keeps reacting to the user while a frame is being made.
+ * The panel sends snapshots of the plane: copies of its components and its camera view.
+ * The copies belong to the renderer, the panel never reads or changes them afterwards,
+ * and only the components that changed since the previous snapshot are copied again.
+ * Each frame is drawn in a back image which is then swapped with the front image,
+ * the one painted by the panel. The snapshots sent while a frame is being made are
+ * merged, so only the latest state of the plane is drawn.
+ * The components that a trace does not change are kept in a static layer and the rays,
+ * the targets and the light of the rays in a dynamic layer, each layer is only drawn
+ * again when something it contains changes
+ * </p>
+ * @author Darrin Fong
+ * @author Tieme Togola
+ */
+public class Renderer {
+
+	//brushes and hints used to draw the plane, shared by all the frames
+	private static final BasicStroke STROKE = new BasicStroke(2, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+	private static final BasicStroke SELECTEDSTROKE = new BasicStroke(3, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+	/**
+	 * Thread shared by the renderers of all the panels, created on first use
+	 */
+	private static ExecutorService sharedThread;
+	/**
+	 * The panel painting the frames
+	 */
+	private final Lab lab;
+
+	/*
+	 * State of the panel side, only used on the event dispatch thread
+	 */
+	/**
+	 * The list of components the copies were made from
+	 */
+	private ArrayList<GameComponent> source;
+	/**
+	 * The copy of each component of the source list, with the component, the revision
+	 * and the selection it was made from
+	 */
+	private GameComponent[] copies = new GameComponent[0];
+	private GameComponent[] copiedFrom = new GameComponent[0];
+	private int[] copiedRevisions = new int[0];
+	private boolean[] copiedSelections = new boolean[0];
+	/**
+	 * Receives the parameters of the component being copied
+	 */
+	private final ByteBuffer copyBuffer = ByteBuffer.allocate(1 + SceneFile.COMPONENTSIZE);
+	/**
+	 * The last snapshot sent
+	 */
+	private Snapshot sent;
+
+	/*
+	 * State shared by both threads, guarded by this renderer
+	 */
+	/**
+	 * The snapshot waiting to be drawn, null if there is none
+	 */
+	private Snapshot pending;
+	/**
+	 * True while a task of the shared thread is drawing the pending snapshots
+	 */
+	private boolean scheduled;
+	/**
+	 * The last finished frame and the camera view it was drawn for
+	 */
+	private BufferedImage front;
+	private double frontCameraX;
+	private double frontCameraY;
+	private double frontScale;
+
+	/*
+	 * State of the render thread
+	 */
+	/**
+	 * The copies being traced, replaced by the ones of each snapshot
+	 */
+	private ArrayList<GameComponent> components = new ArrayList<>();
+	private Scene scene = new Scene(components);
+	private TraceResult result;
+	/**
+	 * The image the next frame is drawn in
+	 */
+	private BufferedImage back;
+	/**
+	 * The static layer holds the components that are not changed by a trace,
+	 * the dynamic layer holds the rays, the targets and the light of the rays
+	 */
+	private BufferedImage staticLayer;
+	private BufferedImage dynamicLayer;
+	/**
+	 * The snapshot shown by the layers, null if they were never drawn
+	 */
+	private Snapshot drawn;
+	/**
+	 * The trace shown by the dynamic layer
+	 */
+	private TraceResult layerResult;
+
+	/**
+	 * The state of the plane at one time. It is not changed once it is made
+	 */
+	private static final class Snapshot {
+
+		/**
+		 * The list of the panel the copies were made from
+		 */
+		final ArrayList<GameComponent> source;
+		/**
+		 * The copies of the components
+		 */
+		final ArrayList<GameComponent> components;
+		/**
+		 * The camera view
+		 */
+		final double cameraX;
+		final double cameraY;
+		final double scale;
+		final int width;
+		final int height;
+		final Rectangle viewRec;
+		/**
+		 * True if components were added, removed or selected since the previous snapshot
+		 */
+		final boolean layoutChanged;
+		/**
+		 * True if components of the static layer changed since the previous snapshot
+		 */
+		final boolean staticChanged;
+		/**
+		 * Region of the plane holding every change since the previous snapshot, null if it is not known
+		 */
+		final Rectangle region;
+
+		Snapshot(ArrayList<GameComponent> source, ArrayList<GameComponent> components, double cameraX, double cameraY, double scale,
+				int width, int height, Rectangle viewRec, boolean layoutChanged, boolean staticChanged, Rectangle region) {
+			this.source = source;
+			this.components = components;
+			this.cameraX = cameraX;
+			this.cameraY = cameraY;
+			this.scale = scale;
+			this.width = width;
+			this.height = height;
+			this.viewRec = viewRec;
+			this.layoutChanged = layoutChanged;
+			this.staticChanged = staticChanged;
+			this.region = region;
+		}
+		/**
+		 * @param next A snapshot made after this one
+		 * @return A snapshot of the state of the next one, holding the changes of both
+		 */
+		Snapshot merge(Snapshot next) {
+			Rectangle both = (region == null || next.region == null) ? null : region.union(next.region);
+
+			return new Snapshot(next.source, next.components, next.cameraX, next.cameraY, next.scale, next.width, next.height, next.viewRec,
+					layoutChanged || next.layoutChanged, staticChanged || next.staticChanged, both);
+		}
+		/**
+		 * @return True if the other snapshot has the same camera view
+		 */
+		boolean sameView(Snapshot other) {
+			return other != null && cameraX == other.cameraX && cameraY == other.cameraY && scale == other.scale
+					&& width == other.width && height == other.height && viewRec.equals(other.viewRec);
+		}
+	}
+
+
+	public Renderer(Lab lab) {
+		this.lab = lab;
+
+		//the copies do not change while they are traced, the rays can be traced on all the processors
+		if (Runtime.getRuntime().availableProcessors() > 1)
+			scene.setExecutor(Scene.getSharedExecutor());
+	}
+
+	/**
+	 * @return A daemon thread that draws the frames of all the panels one after the other
+	 */
+	private static synchronized ExecutorService getSharedThread() {
+		if (sharedThread == null) {
+			sharedThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "Renderer");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return sharedThread;
+	}
+	/**
+	 * Sends a snapshot of the plane of the panel if it changed since the last one.
+	 * Called on the event dispatch thread
+	 * @param region Region of the plane holding the components that changed, null if it is not known
+	 */
+	void update(Rectangle region) {
+
+		ArrayList<GameComponent> list = lab.activeComponents;
+		boolean layoutChanged = false;
+		boolean staticChanged = false;
+		boolean changed = false;
+
+		if (list != source || list.size() != copies.length) {
+			source = list;
+			copies = new GameComponent[list.size()];
+			copiedFrom = new GameComponent[list.size()];
+			copiedRevisions = new int[list.size()];
+			copiedSelections = new boolean[list.size()];
+			layoutChanged = true;
+			changed = true;
+		}
+
+		for (int i = 0; i < copies.length; i++) {
+			GameComponent comp = list.get(i);
+
+			if (comp == copiedFrom[i] && comp.getRevision() == copiedRevisions[i] && comp.isSelected() == copiedSelections[i])
+				continue;
+
+			//selected components are drawn over the layers
+			if (comp.isSelected() != copiedSelections[i])
+				layoutChanged = true;
+			if (!isDynamic(comp) || (copies[i] != null && !isDynamic(copies[i])))
+				staticChanged = true;
+
+			copies[i] = copy(comp);
+			copiedFrom[i] = comp;
+			copiedRevisions[i] = comp.getRevision();
+			copiedSelections[i] = comp.isSelected();
+			changed = true;
+		}
+
+		Snapshot snapshot = new Snapshot(list, new ArrayList<>(Arrays.asList(copies)), lab.cameraX, lab.cameraY, lab.scale,
+				Math.max(1, lab.getWidth()), Math.max(1, lab.getHeight()), lab.getViewRec(), layoutChanged, staticChanged,
+				(region == null) ? null : new Rectangle(region));
+
+		if (!changed && snapshot.sameView(sent))
+			return;
+
+		sent = snapshot;
+
+		synchronized (this) {
+			pending = (pending == null) ? snapshot : pending.merge(snapshot);
+
+			if (!scheduled) {
+				scheduled = true;
+				getSharedThread().execute(new Runnable() {
+					@Override
+					public void run() {
+						drawPending();
+					}
+				});
+			}
+		}
+	}
+	/**
+	 * Copies a component with the parameters written in a scene file, the rays are traced again on the copies
+	 * @param comp A component of the panel
+	 * @return An equal component that is not shared with the panel
+	 */
+	private GameComponent copy(GameComponent comp) {
+		return SceneFile.copy(comp, copyBuffer);
+	}
+	/**
+	 * Draws the pending snapshots until there is none left. Runs on the render thread
+	 */
+	private void drawPending() {
+
+		while (true) {
+			Snapshot snapshot;
+			synchronized (this) {
+				snapshot = pending;
+				pending = null;
+
+				if (snapshot == null) {
+					scheduled = false;
+					return;
+				}
+			}
+
+			try {
+				drawFrame(snapshot);
+			}
+			catch (Exception ex) {
+				//a frame that failed is left out, the next snapshot draws the whole plane again
+				drawn = null;
+			}
+		}
+	}
+	/**
+	 * Traces the copies of a snapshot, draws them in the back image and swaps it with the front image
+	 * @param snapshot The state of the plane to draw
+	 */
+	private void drawFrame(final Snapshot snapshot) {
+
+		components.clear();
+		components.addAll(snapshot.components);
+
+		//the scene returns the same result when nothing changed since the last trace
+		TraceResult before = result;
+		result = scene.trace();
+		if (result != before)
+			scene.publish(result);
+
+		int width = snapshot.width;
+		int height = snapshot.height;
+
+		//the layers are in the coordinates of the panel, a new view makes both of them out of date
+		boolean sameView = snapshot.sameView(drawn);
+		if (!sameView && (staticLayer == null || staticLayer.getWidth() != width || staticLayer.getHeight() != height)) {
+			staticLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+			dynamicLayer = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+		}
+
+		//when the changes are known to be inside a region, the rest of the layers is kept
+		Rectangle damage = null;
+		if (sameView && !snapshot.layoutChanged && snapshot.region != null && before != null)
+			damage = getDamage(snapshot, before);
+
+		boolean staticValid = sameView && !snapshot.layoutChanged && !snapshot.staticChanged;
+		boolean dynamicValid = sameView && !snapshot.layoutChanged && result == layerResult;
+
+		if (!staticValid) {
+			Graphics2D g = beginLayer(staticLayer, damage, snapshot);
+			Rectangle viewRec = getClipRec(g, snapshot);
+			for (int i = 0; i < components.size(); i++) {
+				GameComponent comp = components.get(i);
+				if (!isDynamic(comp) && !comp.isSelected())
+					drawComponent(g, comp, viewRec);
+			}
+			g.dispose();
+		}
+
+		if (!dynamicValid) {
+			Graphics2D g = beginLayer(dynamicLayer, damage, snapshot);
+			Rectangle viewRec = getClipRec(g, snapshot);
+			for (int i = 0; i < components.size(); i++) {
+				GameComponent comp = components.get(i);
+				if (isDynamic(comp) && !comp.isSelected())
+					drawComponent(g, comp, viewRec);
+			}
+			scene.getLight().draw(g, viewRec);
+			g.dispose();
+		}
+
+		drawn = snapshot;
+		layerResult = result;
+
+		//the frame holds both layers with the selected components over them
+		if (back == null || back.getWidth() != width || back.getHeight() != height)
+			back = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D g = beginLayer(back, null, snapshot);
+		g.drawImage(staticLayer, 0, 0, null);
+		g.drawImage(dynamicLayer, 0, 0, null);
+		g.scale(snapshot.scale, snapshot.scale);
+		g.translate(-snapshot.cameraX, -snapshot.cameraY);
+		Rectangle viewRec = getClipRec(g, snapshot);
+		for (int i = 0; i < components.size(); i++) {
+			if (components.get(i).isSelected())
+				drawComponent(g, components.get(i), viewRec);
+		}
+
+		//a selected obstacle is drawn over the light of the dynamic layer,
+		//its own light is drawn again over it, inside its selection frame
+		for (int i = 0; i < components.size(); i++) {
+			GameComponent comp = components.get(i);
+			if (!(comp instanceof Obstacle) || !comp.isSelected() || !comp.getBox().intersects(viewRec))
+				continue;
+
+			Obstacle ob = (Obstacle)comp;
+			Rectangle inside = new Rectangle((int)ob.getPosition().getX()+1, (int)ob.getPosition().getY()+1,
+					(int)ob.getWidth()-1, (int)ob.getHeight()-1);
+
+			Graphics2D lit = (Graphics2D)g.create();
+			lit.clip(inside);
+			scene.getLight().draw(lit, inside.intersection(viewRec));
+			lit.dispose();
+		}
+		g.dispose();
+
+		//targets hit by the trace, the panel checks them to know if a level is passed
+		final boolean[] hits = new boolean[components.size()];
+		for (int i = 0; i < components.size(); i++) {
+			if (components.get(i) instanceof Target)
+				hits[i] = ((Target)components.get(i)).isHit();
+		}
+
+		synchronized (this) {
+			BufferedImage image = front;
+			front = back;
+			back = image;
+			frontCameraX = snapshot.cameraX;
+			frontCameraY = snapshot.cameraY;
+			frontScale = snapshot.scale;
+		}
+
+		final Rectangle repainted = damage;
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				lab.frameReady(snapshot.source, hits, repainted, snapshot.cameraX, snapshot.cameraY, snapshot.scale);
+			}
+		});
+	}
+	/**
+	 * Paints the last finished frame. It may have been drawn for an older camera view,
+	 * then it is moved and scaled to the current one
+	 * @param g0 graphics component of the panel
+	 * @param cameraX current camera view of the panel
+	 * @param cameraY current camera view of the panel
+	 * @param scale current scale of the panel
+	 */
+	synchronized void paintFrame(Graphics2D g0, double cameraX, double cameraY, double scale) {
+		if (front == null)
+			return;
+
+		Graphics2D g = (Graphics2D)g0.create();
+		g.translate((frontCameraX-cameraX)*scale, (frontCameraY-cameraY)*scale);
+		g.scale(scale/frontScale, scale/frontScale);
+		g.drawImage(front, 0, 0, null);
+		g.dispose();
+	}
+	/**
+	 * Finds the part of the panel that changed: the region of the snapshot, and the visible part of the
+	 * old and new paths of the rays whose path changed
+	 * @param snapshot The snapshot being drawn
+	 * @param before The trace drawn in the previous frame
+	 * @return The region in the coordinates of the panel, null if the changes reach the edges of the view
+	 */
+	private Rectangle getDamage(Snapshot snapshot, TraceResult before) {
+
+		Rectangle region = snapshot.region;
+		Rectangle2D changed = new Rectangle2D.Double(region.getX()-Lab.REPAINTMARGIN, region.getY()-Lab.REPAINTMARGIN,
+				region.getWidth()+2*Lab.REPAINTMARGIN, region.getHeight()+2*Lab.REPAINTMARGIN);
+
+		Rectangle viewRec = snapshot.viewRec;
+		if (!viewRec.contains(changed))
+			return null;
+
+		if (result != before) {
+			for (RayPath path : result.getPaths()) {
+				RayPath previous = before.getPath(path.getRay());
+				if (previous != path) {
+					includePath(changed, path, viewRec);
+					if (previous != null)
+						includePath(changed, previous, viewRec);
+				}
+			}
+			for (RayPath path : before.getPaths()) {
+				if (result.getPath(path.getRay()) == null)
+					includePath(changed, path, viewRec);
+			}
+		}
+		return Lab.toPanel(changed, snapshot.cameraX, snapshot.cameraY, snapshot.scale);
+	}
+	/**
+	 * Adds the visible part of the bounding box of a ray path to a region of the plane,
+	 * rays going to infinity are cut at the edges of the camera view and hidden paths are left out
+	 * @param region The region
+	 * @param path The path of a ray
+	 * @param viewRec The camera view
+	 */
+	private void includePath(Rectangle2D region, RayPath path, Rectangle viewRec) {
+		Rectangle2D bounds = path.getBounds();
+		bounds.setRect(bounds.getX()-Lab.REPAINTMARGIN, bounds.getY()-Lab.REPAINTMARGIN,
+				bounds.getWidth()+2*Lab.REPAINTMARGIN, bounds.getHeight()+2*Lab.REPAINTMARGIN);
+
+		if (!bounds.intersects(viewRec))
+			return;
+
+		Rectangle2D.intersect(bounds, viewRec, bounds);
+		region.add(bounds);
+	}
+	/**
+	 * @param comp A component of the plane
+	 * @return True if the component is drawn differently after each trace: rays, and targets that show when they are hit
+	 */
+	private boolean isDynamic(GameComponent comp) {
+		return comp instanceof Ray || comp instanceof Target;
+	}
+	/**
+	 * Clears a region of a layer and prepares a graphics component to draw the plane in it
+	 * @param layer Image of the layer
+	 * @param region Region of the layer to draw again, in the coordinates of the panel, null for the whole layer
+	 * @param snapshot The snapshot being drawn
+	 * @return Graphics component in the coordinates of the plane, clipped to the region
+	 */
+	private Graphics2D beginLayer(BufferedImage layer, Rectangle region, Snapshot snapshot) {
+		Graphics2D g = layer.createGraphics();
+		if (region == null)
+			region = new Rectangle(0, 0, layer.getWidth(), layer.getHeight());
+
+		g.setClip(region);
+		g.setComposite(AlphaComposite.Clear);
+		g.fillRect(region.x, region.y, region.width, region.height);
+		g.setComposite(AlphaComposite.SrcOver);
+		g.setRenderingHints(Lab.ANTIALIASING);
+
+		//the frame itself is not drawn through the camera, only the components in it
+		if (layer == back)
+			return g;
+
+		g.scale(snapshot.scale, snapshot.scale);
+		g.translate(-snapshot.cameraX, -snapshot.cameraY);
+		return g;
+	}
+	/**
+	 * @param g Graphics component in the coordinates of the plane
+	 * @param snapshot The snapshot being drawn
+	 * @return The part of the camera view inside the clip of the graphics component, with room
+	 * around it for the brushes of the components whose box is just outside
+	 */
+	private Rectangle getClipRec(Graphics2D g, Snapshot snapshot) {
+		Rectangle viewRec = new Rectangle(snapshot.viewRec);
+		if (g.getClipBounds() != null)
+			viewRec = viewRec.intersection(g.getClipBounds());
+
+		viewRec.grow((int)SELECTEDSTROKE.getLineWidth(), (int)SELECTEDSTROKE.getLineWidth());
+		return viewRec;
+	}
+	/**
+	 * Draws one component with its color, selected components are drawn with a larger brush
+	 * @param g Graphics component, in the coordinates of the plane
+	 * @param comp The component to draw
+	 * @param viewRec The part of the plane being drawn
+	 */
+	private void drawComponent(Graphics2D g, GameComponent comp, Rectangle viewRec) {
+		g.setColor(comp.getColor());
+		g.setStroke(comp.isSelected() ? SELECTEDSTROKE : STROKE);
+
+		//pass rectangle object of the view to only redraw what is within view for more efficiency
+		comp.draw(g, viewRec);
+	}
+}